@@ -0,0 +1,217 @@
+package friends;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+import structures.IntStack;
+
+/**
+ * This class finds the articulation points (connectors), bridges and
+ * biconnected components of a CsrGraph, with Hopcroft and Tarjan's depth first
+ * search in linear time.
+ *
+ * The search is iterative, with its stack and per-person numbers in int
+ * arrays, so it handles graphs of any depth (tens of millions of people in one
+ * long chain) without recursion and without boxing. Components are found with
+ * a stack of friendships: when the search backs up over a tree friendship
+ * (p,v) and nothing under v reaches above p, the friendships stacked since
+ * (p,v) are one biconnected component.
+ *
+ * Everything is computed in the constructor; a Biconnectivity is then
+ * read-only.
+ *
+ */
+public class Biconnectivity {
+
+	private final CsrGraph g;
+
+	/**
+	 * Connectors, in the order the search finished with them
+	 */
+	private final int[] connectors;
+
+	/**
+	 * isConnector[v] is true if v is a connector
+	 */
+	private final boolean[] isConnector;
+
+	/**
+	 * Bridges as pairs: bridges[2i] and bridges[2i+1] are the two people of
+	 * bridge i, the first one nearer the root of the search
+	 */
+	private final int[] bridges;
+
+	/**
+	 * People of component c are members[start[c]] .. members[start[c+1]-1]
+	 */
+	private final int[] start;
+	private final int[] members;
+
+	/**
+	 * Finds connectors, bridges and biconnected components of a graph.
+	 *
+	 * @param g Graph to search
+	 */
+	public Biconnectivity(CsrGraph g) {
+		this.g = g;
+		int n = g.size();
+		IntBuffer offsets = g.offsets, targets = g.targets;
+		// dfs[v] is the dfs number of v, 0 if not visited; back[v] its back number
+		int[] dfs = new int[n], back = new int[n];
+		// cursor[v] is the next friend list entry of v to look at
+		int[] cursor = new int[n];
+		IntStack stack = new IntStack(n);
+		// set once v has skipped the friendship it was reached by, so that a
+		// second friendship with its parent counts as a back edge
+		boolean[] skippedParent = new boolean[n];
+		// friendships of components not yet complete, as pairs of people
+		IntStack edges = new IntStack(targets.limit() + 2);
+		// stamp[v] is 1 + the last component v was added to
+		int[] stamp = new int[n];
+
+		isConnector = new boolean[n];
+		IntStack connectorList = new IntStack(), bridgeList = new IntStack();
+		IntStack startList = new IntStack(), memberList = new IntStack();
+
+		int dfsnum = 0;
+		for (int root=0; root < n; root++) {
+			if (dfs[root] != 0) {
+				continue;
+			}
+			int rootChildren = 0;
+			stack.push(root);
+			dfs[root] = back[root] = ++dfsnum;
+			cursor[root] = offsets.get(root);
+			for (;;) {
+				int v = stack.peek();
+				if (cursor[v] < offsets.get(v+1)) {
+					int w = targets.get(cursor[v]++);
+					if (dfs[w] == 0) {
+						dfs[w] = back[w] = ++dfsnum;
+						cursor[w] = offsets.get(w);
+						stack.push(w);
+						edges.push(v);
+						edges.push(w);
+					} else if (stack.size() > 1 && w == stack.get(stack.size()-2) && !skippedParent[v]) {
+						skippedParent[v] = true;
+					} else if (dfs[w] < dfs[v]) {
+						back[v] = Math.min(back[v], dfs[w]);
+						edges.push(v);
+						edges.push(w);
+					}
+					continue;
+				}
+				// done with v, back up to its parent
+				stack.pop();
+				if (stack.isEmpty()) {
+					break;
+				}
+				int parent = stack.peek();
+				if (back[v] > dfs[parent]) {
+					bridgeList.push(parent);
+					bridgeList.push(v);
+				}
+				if (back[v] >= dfs[parent]) {
+					// parent separates v's subtree: pop its component
+					startList.push(memberList.size());
+					int componentCount = startList.size();
+					// every person of the component but parent is the lower end
+					// of its friendship with their own parent, so adding lower
+					// ends, then parent, adds everyone
+					int from, to;
+					do {
+						to = edges.pop();
+						from = edges.pop();
+						int u = dfs[from] > dfs[to] ? from : to;
+						for (;;) {
+							if (stamp[u] != componentCount) {
+								stamp[u] = componentCount;
+								memberList.push(u);
+							}
+							if (from != parent || to != v || u == parent) {
+								break;
+							}
+							u = parent;
+						}
+					} while (from != parent || to != v);
+					if (parent == root) {
+						rootChildren++;
+					} else if (!isConnector[parent]) {
+						isConnector[parent] = true;
+						connectorList.push(parent);
+					}
+				}
+				back[parent] = Math.min(back[parent], back[v]);
+			}
+			if (rootChildren > 1) {
+				isConnector[root] = true;
+				connectorList.push(root);
+			}
+		}
+		connectors = connectorList.toArray();
+		bridges = bridgeList.toArray();
+		startList.push(memberList.size());
+		start = startList.toArray();
+		members = memberList.toArray();
+	}
+
+	/**
+	 * Returns the connectors (articulation points): people whose removal would
+	 * disconnect some of their friends from each other.
+	 *
+	 * @return Numbers of connectors
+	 */
+	public int[] connectors() {
+		return connectors.clone();
+	}
+
+	/**
+	 * Tells whether a person is a connector.
+	 *
+	 * @param v Number of person
+	 * @return True if v is a connector
+	 */
+	public boolean isConnector(int v) {
+		return isConnector[v];
+	}
+
+	/**
+	 * Returns the bridges: friendships whose removal would disconnect the graph.
+	 *
+	 * @return Pairs of people, bridge i being between [2i] and [2i+1]
+	 */
+	public int[] bridges() {
+		return bridges.clone();
+	}
+
+	/**
+	 * Returns the number of biconnected components: maximal groups of people
+	 * that stay connected when any one of them is removed. People with no
+	 * friends are in none; every friendship is in exactly one.
+	 *
+	 * @return Number of components
+	 */
+	public int componentCount() {
+		return start.length - 1;
+	}
+
+	/**
+	 * Returns the people of a biconnected component. A connector is in more than
+	 * one component.
+	 *
+	 * @param c Component number, from 0 to componentCount()-1
+	 * @return Numbers of the people in the component
+	 */
+	public int[] component(int c) {
+		return Arrays.copyOfRange(members, start[c], start[c+1]);
+	}
+
+	/**
+	 * Returns the graph searched.
+	 *
+	 * @return Graph
+	 */
+	public CsrGraph graph() {
+		return g;
+	}
+}
@@ -0,0 +1,202 @@
+package friends;
+
+import java.util.Arrays;
+
+/**
+ * This class finds shortest chains with a bidirectional breadth first search:
+ * one search grows from each end, a whole level at a time, always the side
+ * whose frontier is smaller, until they meet. On a small-world graph each side
+ * only goes about half the distance, so far fewer people are visited than by a
+ * search from one end.
+ *
+ * Parents and visited marks are kept in int arrays indexed by person number.
+ * Visited marks are stamped with the number of the search, so nothing has to
+ * be cleared between searches; a ChainSearch can be reused, but by one thread
+ * at a time.
+ *
+ */
+final class ChainSearch {
+
+	/**
+	 * Graph searched, in one of its two forms (the other is null)
+	 */
+	private final Graph graph;
+	private final CsrGraph csr;
+
+	/**
+	 * seen[0][v] is the number of the search in which v was reached from the
+	 * start of the chain, seen[1][v] from the end
+	 */
+	private final int[][] seen;
+
+	/**
+	 * parent[0][v] is the next person from v towards the start, parent[1][v]
+	 * towards the end
+	 */
+	private final int[][] parent;
+
+	/**
+	 * Queues of people reached, one per side
+	 */
+	private final int[][] queue;
+
+	private int stamp;
+
+	/**
+	 * Number of people reached by the latest search
+	 */
+	private int visited;
+
+	/**
+	 * Side whose search ran out in the latest search that found no chain, and
+	 * the number of people it reached
+	 */
+	private int exhausted, reached;
+
+	/**
+	 * Sets up a search over the Friend lists of a graph.
+	 *
+	 * @param g Graph to search
+	 */
+	ChainSearch(Graph g) {
+		this(g, null, g.members.length);
+	}
+
+	/**
+	 * Sets up a search over the CSR form of a graph.
+	 *
+	 * @param g Graph to search
+	 */
+	ChainSearch(CsrGraph g) {
+		this(null, g, g.size());
+	}
+
+	private ChainSearch(Graph graph, CsrGraph csr, int n) {
+		this.graph = graph;
+		this.csr = csr;
+		seen = new int[2][n];
+		parent = new int[2][n];
+		queue = new int[2][n];
+	}
+
+	/**
+	 * Returns the number of people the search has room for.
+	 *
+	 * @return Size of the graph when the search was made
+	 */
+	int capacity() {
+		return seen[0].length;
+	}
+
+	/**
+	 * Finds a shortest chain between two people.
+	 *
+	 * @param from Number of person at the start of the chain
+	 * @param to Number of person at the end of the chain
+	 * @return Numbers of the people on the chain, from first to last, or null if
+	 *         they are not connected
+	 */
+	int[] chain(int from, int to) {
+		if (++stamp == 0) {
+			// stamps wrapped around: old marks could look current
+			for (int[] s : seen) {
+				Arrays.fill(s, 0);
+			}
+			stamp = 1;
+		}
+		if (from == to) {
+			visited = 1;
+			return new int[] { from };
+		}
+		// head[s]..tail[s]-1 is the frontier of side s
+		int[] head = new int[2], tail = new int[2];
+		int[] ends = { from, to };
+		for (int s=0; s < 2; s++) {
+			queue[s][tail[s]++] = ends[s];
+			seen[s][ends[s]] = stamp;
+			parent[s][ends[s]] = -1;
+		}
+		while (head[0] < tail[0] && head[1] < tail[1]) {
+			int s = tail[0] - head[0] <= tail[1] - head[1] ? 0 : 1;
+			int[] mine = seen[s], theirs = seen[1-s], up = parent[s], q = queue[s];
+			int end = tail[s];
+			for (int i=head[s]; i < end; i++) {
+				int v = q[i];
+				if (csr != null) {
+					for (int e=csr.offsets.get(v); e < csr.offsets.get(v+1); e++) {
+						int w = csr.targets.get(e);
+						if (mine[w] != stamp) {
+							mine[w] = stamp;
+							up[w] = v;
+							q[tail[s]++] = w;
+							if (theirs[w] == stamp) {
+								return path(w, tail);
+							}
+						}
+					}
+				} else {
+					for (Friend f=graph.members[v].first; f != null; f=f.next) {
+						int w = f.fnum;
+						if (mine[w] != stamp) {
+							mine[w] = stamp;
+							up[w] = v;
+							q[tail[s]++] = w;
+							if (theirs[w] == stamp) {
+								return path(w, tail);
+							}
+						}
+					}
+				}
+			}
+			head[s] = end;
+		}
+		visited = tail[0] + tail[1];
+		exhausted = head[0] == tail[0] ? 0 : 1;
+		reached = tail[exhausted];
+		return null;
+	}
+
+	/**
+	 * Joins the two halves of a chain where the searches met.
+	 */
+	private int[] path(int meet, int[] tail) {
+		visited = tail[0] + tail[1];
+		int before = 0, after = 0;
+		for (int v=parent[0][meet]; v >= 0; v=parent[0][v]) {
+			before++;
+		}
+		for (int v=parent[1][meet]; v >= 0; v=parent[1][v]) {
+			after++;
+		}
+		int[] chain = new int[before + 1 + after];
+		int i = before;
+		chain[i] = meet;
+		for (int v=parent[0][meet]; v >= 0; v=parent[0][v]) {
+			chain[--i] = v;
+		}
+		i = before;
+		for (int v=parent[1][meet]; v >= 0; v=parent[1][v]) {
+			chain[++i] = v;
+		}
+		return chain;
+	}
+
+	/**
+	 * After a search that found no chain, returns the people reached from the
+	 * end whose search ran out first, which are all the people connected to it.
+	 *
+	 * @return Numbers of people, in order reached
+	 */
+	int[] component() {
+		return Arrays.copyOf(queue[exhausted], reached);
+	}
+
+	/**
+	 * Returns the number of people reached by the latest search, from both ends.
+	 *
+	 * @return Number of people reached
+	 */
+	int visited() {
+		return visited;
+	}
+}
@@ -0,0 +1,230 @@
+package friends;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class answers many shortest chain queries at the same time over one
+ * CsrGraph, which must not change while the service is in use.
+ *
+ * Each query runs a bidirectional ChainSearch. Its scratch arrays take 24 bytes
+ * per person, so they are kept and reused, not allocated per query: visited
+ * marks are stamped with the number of the search, so nothing is cleared
+ * between queries either. There are at most as many searches as queries
+ * allowed to run at once (by default, the number of processors); a query
+ * takes an idle search, or waits for one. Holding searches per query rather
+ * than per thread keeps memory bounded when queries run on virtual threads,
+ * of which there may be thousands.
+ *
+ * Queries can be made directly from any number of threads, or submitted to
+ * the service's executor: one virtual thread per query where the JVM has
+ * them (Java 21 and up), otherwise a fixed pool of threads.
+ *
+ */
+public class ChainService implements AutoCloseable {
+
+	private final CsrGraph g;
+
+	/**
+	 * Idle searches
+	 */
+	private final ArrayBlockingQueue<ChainSearch> idle;
+
+	/**
+	 * Number of searches made so far, at most parallelism
+	 */
+	private final AtomicInteger searches = new AtomicInteger();
+	private final int parallelism;
+
+	private final ExecutorService executor;
+	private final boolean virtualThreads;
+
+	/**
+	 * Sets up a service running as many queries at once as there are
+	 * processors, on virtual threads if the JVM has them.
+	 *
+	 * @param g Graph to search
+	 */
+	public ChainService(CsrGraph g) {
+		this(g, Runtime.getRuntime().availableProcessors(), true);
+	}
+
+	/**
+	 * Sets up a service.
+	 *
+	 * @param g Graph to search
+	 * @param parallelism Number of queries that can run at once
+	 * @param virtual True to run submitted queries on virtual threads if the JVM
+	 *        has them, false to always use a fixed pool of parallelism threads
+	 */
+	public ChainService(CsrGraph g, int parallelism, boolean virtual) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		this.g = g;
+		this.parallelism = parallelism;
+		idle = new ArrayBlockingQueue<ChainSearch>(parallelism);
+		ExecutorService perTask = virtual ? virtualThreadExecutor() : null;
+		virtualThreads = perTask != null;
+		executor = virtualThreads ? perTask : Executors.newFixedThreadPool(parallelism);
+	}
+
+	/**
+	 * Returns an executor starting a virtual thread per task, or null if the JVM
+	 * has none. Found by reflection, so the class still builds for Java 8.
+	 */
+	private static ExecutorService virtualThreadExecutor() {
+		try {
+			Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) m.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Tells if submitted queries run on virtual threads.
+	 *
+	 * @return True if on virtual threads, false if on a fixed pool
+	 */
+	public boolean virtualThreads() {
+		return virtualThreads;
+	}
+
+	/**
+	 * Finds the shortest chain of people from p1 to p2, in the calling thread.
+	 * Safe to call from many threads at once; waits if parallelism queries are
+	 * already running.
+	 *
+	 * @param p1 Person with whom the chain originates
+	 * @param p2 Person at whom the chain terminates
+	 * @return The shortest chain from p1 to p2, as Friends.shortestChain returns
+	 *         it. Null if there is no path from p1 to p2
+	 */
+	public ArrayList<String> shortestChain(String p1, String p2) {
+		if (p1.equals(p2)) {
+			return null;
+		}
+		int first = g.indexOf(p1), last = g.indexOf(p2);
+		if (first < 0 || last < 0) {
+			return null;
+		}
+		ChainSearch search = take();
+		int[] chain;
+		try {
+			chain = search.chain(first, last);
+		} finally {
+			idle.offer(search);
+		}
+		if (chain == null) {
+			return null;
+		}
+		ArrayList<String> list = new ArrayList<String>(chain.length);
+		for (int v : chain) {
+			list.add(g.name(v));
+		}
+		return list;
+	}
+
+	/**
+	 * Takes an idle search, making one if fewer than parallelism exist yet, or
+	 * else waiting for one.
+	 */
+	private ChainSearch take() {
+		ChainSearch search = idle.poll();
+		if (search != null) {
+			return search;
+		}
+		for (int made=searches.get(); made < parallelism; made=searches.get()) {
+			if (searches.compareAndSet(made, made + 1)) {
+				return new ChainSearch(g);
+			}
+		}
+		boolean interrupted = false;
+		try {
+			for (;;) {
+				try {
+					return idle.take();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Submits a query, to run on the service's executor.
+	 *
+	 * @param p1 Person with whom the chain originates
+	 * @param p2 Person at whom the chain terminates
+	 * @return Future for the result of shortestChain(p1, p2)
+	 */
+	public Future<ArrayList<String>> submit(final String p1, final String p2) {
+		return executor.submit(() -> shortestChain(p1, p2));
+	}
+
+	/**
+	 * Runs a batch of queries on the service's executor, and waits for them all.
+	 *
+	 * @param pairs Queries, as pairs of names
+	 * @return Results of shortestChain for each pair, in the same order
+	 * @throws InterruptedException If interrupted while waiting
+	 */
+	public ArrayList<ArrayList<String>> shortestChains(List<String[]> pairs)
+	throws InterruptedException {
+		ArrayList<Future<ArrayList<String>>> futures = new ArrayList<Future<ArrayList<String>>>(pairs.size());
+		for (String[] pair : pairs) {
+			futures.add(submit(pair[0], pair[1]));
+		}
+		ArrayList<ArrayList<String>> chains = new ArrayList<ArrayList<String>>(pairs.size());
+		for (Future<ArrayList<String>> future : futures) {
+			try {
+				chains.add(future.get());
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw (Error) cause;
+			}
+		}
+		return chains;
+	}
+
+	/**
+	 * Returns the graph searched.
+	 *
+	 * @return Graph
+	 */
+	public CsrGraph graph() {
+		return g;
+	}
+
+	/**
+	 * Stops taking submitted queries, and waits for those submitted to finish.
+	 * Direct calls to shortestChain keep working.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// keep waiting
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package friends;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is an immutable, compressed sparse row (CSR) form of a friends graph.
+ *
+ * People are numbered 0..n-1 as in the input. The friends of person v are
+ * targets[offsets[v]] .. targets[offsets[v+1]-1], so the whole adjacency is two
+ * int buffers, with no object per friendship, and a traversal reads each friend
+ * list from consecutive memory. The buffers wrap int arrays for a graph built
+ * in memory, or map a file for a graph opened from a GraphSnapshot.
+ *
+ * A CsrGraph built by either constructor has its friend lists in the same
+ * order as the Friend lists of a Graph built from the same input, so
+ * algorithms visit people in the same order on either form. GraphLoader
+ * sorts each friend list by person number instead, and a GraphSnapshot keeps
+ * the order of the graph it was written from.
+ *
+ * Schools are interned: each student has the int id of their school, and people
+ * who are not students have -1.
+ *
+ */
+public class CsrGraph {
+
+	/**
+	 * Names of people, numbered as the people
+	 */
+	final NameTable names;
+
+	/**
+	 * School id of each person, -1 if not a student
+	 */
+	final IntBuffer school;
+
+	/**
+	 * School names, by id
+	 */
+	final String[] schools;
+
+	/**
+	 * Friends of person v start at offsets[v]; offsets[n] is the number of targets
+	 */
+	final IntBuffer offsets;
+
+	/**
+	 * Friend lists of all people, back to back. Each friendship is in two lists.
+	 */
+	final IntBuffer targets;
+
+	/**
+	 * A search left idle by the last shortest chain query, null while one is
+	 * running; lets Friends.shortestChain skip allocating a search per query
+	 */
+	private final AtomicReference<ChainSearch> idleSearch = new AtomicReference<ChainSearch>();
+
+	/**
+	 * Builds the CSR form of a graph.
+	 *
+	 * @param g Graph to convert
+	 */
+	public CsrGraph(Graph g) {
+		int n = g.size;
+		names = new NameTable(n, n * 8);
+		int[] school = new int[n];
+		HashMap<String,Integer> schoolIds = new HashMap<String,Integer>();
+		int[] offsets = new int[n+1];
+		for (int v=0; v < n; v++) {
+			Person person = g.members[v];
+			names.add(person.name);
+			school[v] = person.student ? intern(schoolIds, person.school) : -1;
+			int degree = 0;
+			for (Friend f=person.first; f != null; f=f.next) {
+				degree++;
+			}
+			offsets[v+1] = offsets[v] + degree;
+		}
+		int[] targets = new int[offsets[n]];
+		for (int v=0; v < n; v++) {
+			int pos = offsets[v];
+			for (Friend f=g.members[v].first; f != null; f=f.next) {
+				targets[pos++] = f.fnum;
+			}
+		}
+		schools = schoolNames(schoolIds);
+		names.trim();
+		this.school = IntBuffer.wrap(school);
+		this.offsets = IntBuffer.wrap(offsets);
+		this.targets = IntBuffer.wrap(targets);
+	}
+
+	/**
+	 * Builds the CSR form directly from input in the format read by
+	 * Graph(Scanner), without creating Person and Friend objects.
+	 *
+	 * @param sc Scanner on the input
+	 */
+	public CsrGraph(Scanner sc) {
+		// first line is number of people
+		int n = Integer.parseInt(sc.nextLine());
+		names = new NameTable(n, n * 8);
+		int[] school = new int[n];
+		HashMap<String,Integer> schoolIds = new HashMap<String,Integer>();
+		for (int i=0; i < n; i++) {
+			StringTokenizer st = new StringTokenizer(sc.nextLine(),"|");
+			names.add(st.nextToken());
+			String yn = st.nextToken(); // student or not
+			school[i] = yn.toLowerCase().charAt(0) == 'y' ? intern(schoolIds, st.nextToken()) : -1;
+		}
+		names.trim();
+		schools = schoolNames(schoolIds);
+		// rest are friendships, kept as pairs until all degrees are known
+		int[] edges = new int[16];
+		int m = 0;
+		int[] offsets = new int[n+1];
+		while (sc.hasNextLine()) {
+			StringTokenizer st = new StringTokenizer(sc.nextLine(),"|");
+			int i = names.find(st.nextToken());
+			int j = names.find(st.nextToken());
+			if (m + 2 > edges.length) {
+				edges = Arrays.copyOf(edges, edges.length * 2);
+			}
+			edges[m++] = i;
+			edges[m++] = j;
+			offsets[i+1]++;
+			offsets[j+1]++;
+		}
+		for (int v=0; v < n; v++) {
+			offsets[v+1] += offsets[v];
+		}
+		// fill each list from its end, so the last friendship read comes first,
+		// as it does in a Graph's Friend lists
+		int[] targets = new int[m];
+		int[] pos = Arrays.copyOfRange(offsets, 1, n+1);
+		for (int e=0; e < m; e += 2) {
+			targets[--pos[edges[e]]] = edges[e+1];
+			targets[--pos[edges[e+1]]] = edges[e];
+		}
+		this.school = IntBuffer.wrap(school);
+		this.offsets = IntBuffer.wrap(offsets);
+		this.targets = IntBuffer.wrap(targets);
+	}
+
+	/**
+	 * Wraps arrays or buffers built elsewhere, such as by GraphLoader or
+	 * GraphSnapshot.
+	 */
+	CsrGraph(NameTable names, IntBuffer school, String[] schools, IntBuffer offsets, IntBuffer targets) {
+		this.names = names;
+		this.school = school;
+		this.schools = schools;
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	/**
+	 * Takes the idle search, or makes a new one if another query holds it.
+	 */
+	ChainSearch takeSearch() {
+		ChainSearch search = idleSearch.getAndSet(null);
+		return search != null ? search : new ChainSearch(this);
+	}
+
+	/**
+	 * Leaves a search taken by takeSearch idle, for the next query.
+	 */
+	void releaseSearch(ChainSearch search) {
+		idleSearch.set(search);
+	}
+
+	private static int intern(HashMap<String,Integer> ids, String name) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = ids.size();
+			ids.put(name, id);
+		}
+		return id;
+	}
+
+	private static String[] schoolNames(HashMap<String,Integer> ids) {
+		String[] names = new String[ids.size()];
+		for (Map.Entry<String,Integer> e : ids.entrySet()) {
+			names[e.getValue()] = e.getKey();
+		}
+		return names;
+	}
+
+	/**
+	 * Returns number of people.
+	 *
+	 * @return Number of people
+	 */
+	public int size() {
+		return school.limit();
+	}
+
+	/**
+	 * Returns number of friendships.
+	 *
+	 * @return Number of friendships (each counted once)
+	 */
+	public int edgeCount() {
+		return targets.limit() / 2;
+	}
+
+	/**
+	 * Returns the number of a person.
+	 *
+	 * @param name Name of person
+	 * @return Number of person, -1 if there is no such person
+	 */
+	public int indexOf(String name) {
+		return names.find(name);
+	}
+
+	/**
+	 * Returns the name of a person.
+	 *
+	 * @param v Number of person
+	 * @return Name of person
+	 */
+	public String name(int v) {
+		return names.get(v);
+	}
+
+	/**
+	 * Returns the number of friends of a person.
+	 *
+	 * @param v Number of person
+	 * @return Number of friends
+	 */
+	public int degree(int v) {
+		return offsets.get(v+1) - offsets.get(v);
+	}
+
+	/**
+	 * Returns the id of a school.
+	 *
+	 * @param name Name of school
+	 * @return Id of school, -1 if no student goes to it
+	 */
+	public int schoolId(String name) {
+		for (int i=0; i < schools.length; i++) {
+			if (schools[i].equals(name)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -2,9 +2,10 @@ package friends;
 
 import java.util.ArrayList;
 
-import structures.Queue;
-import structures.Stack;
+import structures.IntQueue;
+import structures.UnionFind;
 import java.util.*;
+import java.util.stream.IntStream;
 
 public class Friends {
 
@@ -12,7 +13,9 @@ public class Friends {
 	 * Finds the shortest chain of people from p1 to p2.
 	 * Chain is returned as a sequence of names starting with p1,
 	 * and ending with p2. Each pair (n1,n2) of consecutive names in
-	 * the returned chain is an edge in the graph.
+	 * the returned chain is an edge in the graph. Safe to call from many
+	 * threads at once, as long as none changes the graph; search arrays are
+	 * reused as by shortestChain(CsrGraph, p1, p2).
 	 * 
 	 * @param g Graph for which shortest chain is to be found.
 	 * @param p1 Person with whom the chain originates
@@ -20,50 +23,115 @@ public class Friends {
 	 * @return The shortest chain from p1 to p2. Null if there is no
 	 *         path from p1 to p2
 	 */
-	private static Person search(Graph graph, String name) {
-		if(!graph.map.containsKey(name)) return null;
-		int value = graph.map.get(name).intValue();
-		return graph.members[value];
-	}
-	
 	public static ArrayList<String> shortestChain(Graph g, String p1, String p2) {
 		
 		/** COMPLETE THIS METHOD **/
 		if(p1.equals(p2)) {
 			return null;
 		}
-		
-		Map<Person, Person> map = new HashMap<>();
-		Queue <Person> queue = new Queue<>();
-		Person first = search(g, p2);
-		if(first == null) {
+		Integer first = g.map.get(p1), last = g.map.get(p2);
+		if(first == null || last == null) {
 			return null;
 		}
-		
-		queue.enqueue(first);
-		map.put(first, null);
-		while(!queue.isEmpty()) {
-			Person person = queue.dequeue();
-			Friend friend = person.first;
-			while(friend != null) {
-				Person newPerson = g.members[friend.fnum];
-				if(!map.containsKey(newPerson)) {
-					map.put(newPerson, person);
-					queue.enqueue(newPerson);
-					if(newPerson.name.contentEquals(p1)) {
-						ArrayList<String> list = new ArrayList <>();
-						Person current = newPerson;
-						while (current != null) {
-							list.add(current.name);
-							current = map.get(current);
-						}
-						return list;
-					}
-				}
-				friend = friend.next;
-			}
+		ChainSearch search = g.takeSearch();
+		int[] chain;
+		try {
+			chain = search.chain(first, last);
+		} finally {
+			g.releaseSearch(search);
+		}
+		if(chain == null) {
+			return null;
+		}
+		ArrayList<String> list = new ArrayList<>(chain.length);
+		for(int v : chain) {
+			list.add(g.members[v].name);
+		}
+		return list;
+	}
+	
+	/**
+	 * Finds the shortest chain of people from p1 to p2, on the CSR form of a graph.
+	 * Safe to call from many threads at once. A call reuses the search arrays
+	 * of the previous one, unless another call is using them, in which case it
+	 * allocates its own; ChainService keeps one search per concurrent query.
+	 * 
+	 * @param g Graph for which shortest chain is to be found.
+	 * @param p1 Person with whom the chain originates
+	 * @param p2 Person at whom the chain terminates
+	 * @return The shortest chain from p1 to p2. Null if there is no
+	 *         path from p1 to p2
+	 */
+	public static ArrayList<String> shortestChain(CsrGraph g, String p1, String p2) {
+		if(p1.equals(p2)) {
+			return null;
+		}
+		int first = g.indexOf(p1), last = g.indexOf(p2);
+		if(first < 0 || last < 0) {
+			return null;
+		}
+		ChainSearch search = g.takeSearch();
+		int[] chain;
+		try {
+			chain = search.chain(first, last);
+		} finally {
+			g.releaseSearch(search);
+		}
+		if(chain == null) {
+			return null;
+		}
+		ArrayList<String> list = new ArrayList<>(chain.length);
+		for(int v : chain) {
+			list.add(g.name(v));
+		}
+		return list;
+	}
+	
+	/**
+	 * Finds the shortest chain of people from p1 to p2 with a parallel breadth
+	 * first search, which pays off for people far apart in large graphs.
+	 * 
+	 * @param bfs Search engine over the graph
+	 * @param p1 Person with whom the chain originates
+	 * @param p2 Person at whom the chain terminates
+	 * @return The shortest chain from p1 to p2. Null if there is no
+	 *         path from p1 to p2
+	 */
+	public static ArrayList<String> shortestChain(ParallelBfs bfs, String p1, String p2) {
+		if(p1.equals(p2)) {
+			return null;
+		}
+		CsrGraph g = bfs.graph();
+		int first = g.indexOf(p1), last = g.indexOf(p2);
+		if(first < 0 || last < 0) {
+			return null;
+		}
+		int[] chain = bfs.chain(first, last);
+		if(chain == null) {
+			return null;
+		}
+		ArrayList<String> list = new ArrayList<>(chain.length);
+		for(int v : chain) {
+			list.add(g.name(v));
+		}
+		return list;
+	}
+	
+	/**
+	 * Finds the number of hops from a person to everyone in a graph, with a
+	 * parallel breadth first search.
+	 * 
+	 * @param g Graph to search
+	 * @param source Person to start from
+	 * @return Hop counts by person number (as in the input), -1 for people not
+	 *         connected to source. Null if there is no such person.
+	 */
+	public static int[] distancesFrom(CsrGraph g, String source) {
+		int v = g.indexOf(source);
+		if(v < 0) {
+			return null;
 		}
-		return null;
+		return new ParallelBfs(g).distancesFrom(v);
 	}
 	
 	/**
@@ -72,115 +140,168 @@ public class Friends {
 	 * Returns an array list of array lists - each constituent array list contains
 	 * the names of all students in a clique.
 	 * 
+	 * Cliques are found by breadth first search over the Friend lists, visiting
+	 * only students of the school, and come out in the same order as from the
+	 * CSR form.
+	 * 
 	 * @param g Graph for which cliques are to be found.
 	 * @param school Name of school
-	 * @return Array list of clique array lists. Null if there is no student in the
+	 * @return Array list of clique array lists, empty if there is no student in the
 	 *         given school
 	 */
 	public static ArrayList<ArrayList<String>> cliques(Graph g, String school) {
 		
 		/** COMPLETE THIS METHOD **/
-		ArrayList<ArrayList<String>> listInList = new ArrayList<>();
-		Set<Person> set = new HashSet<>();
-		for(Person person : g.members) {
-			if(person.school != null && person.school.contentEquals(school) && !set.contains(person)) {
-				ArrayList<String> list = new ArrayList<>();
-				list.add(person.name);
-				set.add(person);
-				Queue<Person> queue = new Queue<>();
-				queue.enqueue(person);
-				while(!queue.isEmpty()) {
-					Person current = queue.dequeue();
-					Friend friend = current.first;
-					while(friend != null) {
-						Person p = g.members[friend.fnum];
-						if(p.school != null && p.school.contentEquals(school) && !set.contains(p)) {
-							set.add(p);
-							queue.enqueue(p);
-							list.add(p.name);
-						}
-						friend = friend.next;
+		ArrayList<ArrayList<String>> cliques = new ArrayList<>();
+		boolean[] visited = new boolean[g.size];
+		IntQueue queue = new IntQueue(), clique = new IntQueue();
+		for(int s = 0; s < g.size; s++) {
+			if(visited[s] || !inSchool(g.members[s], school)) {
+				continue;
+			}
+			// breadth first search from the lowest numbered student not yet in a clique
+			queue.enqueue(s);
+			visited[s] = true;
+			while(!queue.isEmpty()) {
+				int v = queue.dequeue();
+				clique.enqueue(v);
+				for(Friend f = g.members[v].first; f != null; f = f.next) {
+					if(!visited[f.fnum] && inSchool(g.members[f.fnum], school)) {
+						visited[f.fnum] = true;
+						queue.enqueue(f.fnum);
 					}
 				}
-				listInList.add(list);
 			}
+			// students in number order, as on the CSR form
+			int[] people = clique.toArray();
+			clique.clear();
+			Arrays.sort(people);
+			ArrayList<String> names = new ArrayList<>(people.length);
+			for(int v : people) {
+				names.add(g.members[v].name);
+			}
+			cliques.add(names);
 		}
-		return listInList;
-		
+		return cliques;
+	}
+	
+	private static boolean inSchool(Person p, String school) {
+		return p.student && school.equals(p.school);
+	}
+	
+	/**
+	 * Finds all cliques of students in a given school, on the CSR form of a graph.
+	 * Friendships between students of the school are merged in parallel into a
+	 * union-find, comparing school ids, not names. Cliques are in order of their
+	 * lowest numbered student, and students within a clique in number order.
+	 * 
+	 * @param g Graph for which cliques are to be found.
+	 * @param school Name of school
+	 * @return Array list of clique array lists, empty if there is no student in the
+	 *         given school
+	 */
+	public static ArrayList<ArrayList<String>> cliques(CsrGraph g, String school) {
+		int id = g.schoolId(school);
+		if(id < 0) {
+			return new ArrayList<>();
+		}
+		return allCliques(g, id).get(school);
+	}
+	
+	/**
+	 * Finds the cliques of every school at once, in a single pass over the graph.
+	 * 
+	 * @param g Graph for which cliques are to be found.
+	 * @return Cliques by school name, each as cliques(g, school) would return them
+	 */
+	public static HashMap<String,ArrayList<ArrayList<String>>> allCliques(Graph g) {
+		return allCliques(new CsrGraph(g));
+	}
+	
+	/**
+	 * Finds the cliques of every school at once, in a single pass over the CSR
+	 * form of a graph.
+	 * 
+	 * @param g Graph for which cliques are to be found.
+	 * @return Cliques by school name, each as cliques(g, school) would return them
+	 */
+	public static HashMap<String,ArrayList<ArrayList<String>>> allCliques(CsrGraph g) {
+		return allCliques(g, -1);
+	}
+	
+	/**
+	 * Groups students into cliques of one school, or of all schools if id is -1.
+	 */
+	private static HashMap<String,ArrayList<ArrayList<String>>> allCliques(final CsrGraph g, final int id) {
+		final UnionFind uf = new UnionFind(g.size());
+		IntStream.range(0, g.size()).parallel().forEach(v -> {
+			int s = g.school.get(v);
+			if(s < 0 || (id >= 0 && s != id)) {
+				return;
+			}
+			for(int e = g.offsets.get(v); e < g.offsets.get(v+1); e++) {
+				int w = g.targets.get(e);
+				if(w > v && g.school.get(w) == s) {
+					uf.union(v, w);
+				}
+			}
+		});
+		ArrayList<ArrayList<ArrayList<String>>> bySchool = new ArrayList<>();
+		for(int s = 0; s < g.schools.length; s++) {
+			bySchool.add(new ArrayList<ArrayList<String>>());
+		}
+		// cliqueOf[root] is the number of the clique with that root, -1 until seen
+		int[] cliqueOf = new int[g.size()];
+		Arrays.fill(cliqueOf, -1);
+		ArrayList<ArrayList<String>> all = new ArrayList<>();
+		for(int v = 0; v < g.size(); v++) {
+			int s = g.school.get(v);
+			if(s < 0 || (id >= 0 && s != id)) {
+				continue;
+			}
+			int root = uf.find(v);
+			if(cliqueOf[root] < 0) {
+				cliqueOf[root] = all.size();
+				all.add(new ArrayList<String>());
+				bySchool.get(s).add(all.get(cliqueOf[root]));
+			}
+			all.get(cliqueOf[root]).add(g.name(v));
+		}
+		HashMap<String,ArrayList<ArrayList<String>>> cliques = new HashMap<>();
+		for(int s = 0; s < g.schools.length; s++) {
+			if(id < 0 || s == id) {
+				cliques.put(g.schools[s], bySchool.get(s));
+			}
+		}
+		return cliques;
 	}
 	
 	/**
 	 * Finds and returns all connectors in the graph.
 	 * 
+	 * The graph keeps the connectors it found until a change may move them.
+	 * 
 	 * @param g Graph for which connectors needs to be found.
 	 * @return Names of all connectors. Null if there are no connectors.
 	 */
 	public static ArrayList<String> connectors(Graph g) {
 		
 		/** COMPLETE THIS METHOD **/
-		Set<Person> set = new HashSet<>();
-        ArrayList<String> list = new ArrayList<>();
-        Map<Person, Friend> friendMap = new HashMap<>();
-        for(Person person: g.members) {
-            friendMap.put(person, person.first);
-        }
- 
-        for(Person person: g.members) {
-            if(!set.contains(person)) {
-                Map<Person, Integer> dfs = new HashMap<>(), back = new HashMap<>();
-                Stack<Person> stack = new Stack<>();
-                stack.push(null);
-                int dfsnum = 1;
-                Person current = person;
- 
-                while(!stack.isEmpty()) {
-                    if(current == null) break;
-                    if(!set.contains(current)) {
-                        dfs.put(current, dfsnum);
-                        back.put(current, dfsnum++);
-                        set.add(current);
-                        stack.push(current);
-                    }
-                    while(friendMap.get(current) != null) {
-                        Friend friend = friendMap.get(current);
-                        Person nextPerson = g.members[friend.fnum];
-                        if(set.contains(nextPerson)) {
-                            back.put(current, Math.min(back.get(current), dfs.get(nextPerson)));
-                            friendMap.put(current, friend.next);
-                        }
-                        else {
-                            current = nextPerson;
-                            break;
-                        }
-                    }
-                    if(friendMap.get(current) == null) {
-                        Person other = current;
-                        current = stack.pop();
-                        if(other == current) {
-                            current = stack.peek();
-                        }
-                        if(current == null) break;
-                        if(other != current) {
-                            if(dfs.get(current) > back.get(other)) {
-                                back.put(current, Math.min(back.get(current), back.get(other)));
-                            }
-                            else {
-                                if(current == person) {
-                                    if(dfs.get(other) >= back.get(other) + 2) {
-                                        list.add(current.name);
-                                    }
-                                }
-                                else {
-                                    if(!list.contains(current.name))list.add(current.name);
-                                }
-                            }
-                            friendMap.put(current, friendMap.get(current).next);
-                        }
-                    }
-                }
-            }
-        }
-        return list;		
+		return g.connectors();
+	}
+	
+	/**
+	 * Finds and returns all connectors in the CSR form of a graph.
+	 * See Biconnectivity for bridges and biconnected components as well.
+	 * 
+	 * @param g Graph for which connectors needs to be found.
+	 * @return Names of all connectors, in order of discovery, empty if there are none.
+	 */
+	public static ArrayList<String> connectors(CsrGraph g) {
+		ArrayList<String> list = new ArrayList<>();
+		for(int v : new Biconnectivity(g).connectors()) {
+			list.add(g.name(v));
+		}
+		return list;
 	}
 }
-
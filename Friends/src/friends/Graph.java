@@ -1,8 +1,13 @@
 package friends;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Scanner;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import structures.UnionFind;
 
 class Friend {
 	int fnum;
@@ -30,17 +35,42 @@ class Edge {
 		
 public class Graph {
 	
-	// all the members in the graph
+	// all the members in the graph, in members[0..size-1]; the array may have
+	// room for more
 	Person[] members;
 	
+	// number of members
+	int size;
+	
 	// hash map to store the (name,num) association
 	HashMap<String,Integer> map;
 	
+	// connected components: person v is item slot[v] of a union-find whose
+	// sets are kept up to date as people and friendships come and go; items
+	// slots and up are free. null until first needed.
+	private UnionFind components;
+	private int[] slot;
+	private int slots;
+	
+	// connectors, and the biconnected component of each person who is not a
+	// connector (-1 for connectors and people with no friends); null until
+	// first needed, and after a change that may have moved them
+	private ArrayList<String> connectors;
+	private int[] blockOf;
+	
+	// reused to tell if a removal split a component; null after members grows
+	private ChainSearch search;
+	
+	// a search left idle by the last shortest chain query, null while one is
+	// running; one sized for fewer people than members holds is not reused
+	private final AtomicReference<ChainSearch> idleSearch = new AtomicReference<ChainSearch>();
+	
 	// initialize graph from file
 	public Graph(Scanner sc) {
 		// first line is number of people
 		int n = Integer.parseInt(sc.nextLine());
 		members = new Person[n];
+		size = n;
 		map = new HashMap<String,Integer>(n*2);
 		// next n lines are people's info
 		for (int i=0; i < n; i++) {
@@ -73,4 +103,249 @@ public class Graph {
 			members[j].first = new Friend(i,members[j].first);
 		}
 	}
+	
+	/**
+	 * Returns the number of people in the graph.
+	 * 
+	 * @return Number of people
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Adds a person with no friends. Connected components and connectors stay
+	 * as they are, apart from the new person being a component of their own.
+	 * 
+	 * @param name Name of person
+	 * @param school School of person, null if not a student
+	 * @return Number of the person
+	 * @throws IllegalArgumentException If there already is a person with the name
+	 */
+	public int addPerson(String name, String school) {
+		if (map.containsKey(name)) {
+			throw new IllegalArgumentException("already in graph: " + name);
+		}
+		if (size == members.length) {
+			// grow by doubling, so adding n people costs O(n) in all
+			members = Arrays.copyOf(members, Math.max(members.length * 2, 4));
+			search = null;
+		}
+		if (components != null) {
+			if (slot.length < members.length) {
+				slot = Arrays.copyOf(slot, members.length);
+			}
+			slot[size] = newSlot();
+		}
+		Person person = new Person();
+		person.name = name;
+		person.student = school != null;
+		person.school = school;
+		members[size] = person;
+		map.put(name, size);
+		return size++;
+	}
+	
+	/**
+	 * Makes two people friends. Connected components are updated with one
+	 * union; connectors are kept if the two are already in the same biconnected
+	 * component (which a new friendship inside it can't change), and otherwise
+	 * found again when next asked for.
+	 * 
+	 * @param p1 Name of person
+	 * @param p2 Name of person
+	 * @return True if the friendship was added; false if either person is not
+	 *         in the graph, they are the same person, or already friends
+	 */
+	public boolean addFriendship(String p1, String p2) {
+		Integer i = map.get(p1), j = map.get(p2);
+		if (i == null || j == null || i.intValue() == j.intValue() || areFriends(i, j)) {
+			return false;
+		}
+		members[i].first = new Friend(j, members[i].first);
+		members[j].first = new Friend(i, members[j].first);
+		if (components != null) {
+			components.union(slot[i], slot[j]);
+		}
+		if (connectors != null && !(i < blockOf.length && j < blockOf.length
+				&& blockOf[i] >= 0 && blockOf[i] == blockOf[j])) {
+			connectors = null;
+			blockOf = null;
+		}
+		return true;
+	}
+	
+	/**
+	 * Ends the friendship of two people. A union-find can't split a set, so a
+	 * bidirectional search checks whether the two are still connected. If not,
+	 * the side whose search ran out is a component of its own now; its people
+	 * move to fresh union-find items, merged along their friendships, at a cost
+	 * in proportion to the size of that side, which the search had to visit
+	 * anyway. Connectors are found again when next asked for.
+	 * 
+	 * @param p1 Name of person
+	 * @param p2 Name of person
+	 * @return True if the friendship was removed; false if either person is not
+	 *         in the graph, or they are not friends
+	 */
+	public boolean removeFriendship(String p1, String p2) {
+		Integer i = map.get(p1), j = map.get(p2);
+		if (i == null || j == null || !unlink(i, j)) {
+			return false;
+		}
+		unlink(j, i);
+		connectors = null;
+		blockOf = null;
+		if (components != null) {
+			if (search == null) {
+				search = new ChainSearch(this);
+			}
+			if (search.chain(i, j) == null) {
+				split(search.component());
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Tells if two people are connected by a chain of friendships.
+	 * 
+	 * @param p1 Name of person
+	 * @param p2 Name of person
+	 * @return True if they are connected; false if not, or either is not in the graph
+	 */
+	public boolean connected(String p1, String p2) {
+		Integer i = map.get(p1), j = map.get(p2);
+		if (i == null || j == null) {
+			return false;
+		}
+		UnionFind uf = components();
+		return uf.connected(slot[i], slot[j]);
+	}
+	
+	/**
+	 * Returns the number of connected components, counting each person with no
+	 * friends as one.
+	 * 
+	 * @return Number of components
+	 */
+	public int componentCount() {
+		// each free item is a set of its own; the old items of people who moved
+		// are still in the set of someone who didn't
+		UnionFind uf = components();
+		return uf.count() - (uf.size() - slots);
+	}
+	
+	/**
+	 * Takes the idle search, or makes a new one if another query holds it or
+	 * it was made before members grew.
+	 * 
+	 * @return Search over this graph, for one thread
+	 */
+	ChainSearch takeSearch() {
+		ChainSearch search = idleSearch.getAndSet(null);
+		return search != null && search.capacity() >= members.length ? search : new ChainSearch(this);
+	}
+	
+	/**
+	 * Leaves a search taken by takeSearch idle, for the next query.
+	 * 
+	 * @param search Search no longer in use
+	 */
+	void releaseSearch(ChainSearch search) {
+		idleSearch.set(search);
+	}
+	
+	/**
+	 * Returns the connectors, found by a Biconnectivity search on the first call
+	 * after a change that may have moved them.
+	 * 
+	 * @return Names of connectors, in order of discovery
+	 */
+	ArrayList<String> connectors() {
+		if (connectors == null) {
+			CsrGraph csr = new CsrGraph(this);
+			Biconnectivity b = new Biconnectivity(csr);
+			ArrayList<String> list = new ArrayList<String>();
+			for (int v : b.connectors()) {
+				list.add(csr.name(v));
+			}
+			int[] block = new int[size];
+			Arrays.fill(block, -1);
+			for (int c=0; c < b.componentCount(); c++) {
+				for (int v : b.component(c)) {
+					block[v] = b.isConnector(v) ? -1 : c;
+				}
+			}
+			connectors = list;
+			blockOf = block;
+		}
+		return new ArrayList<String>(connectors);
+	}
+	
+	private UnionFind components() {
+		if (components == null) {
+			UnionFind uf = new UnionFind(members.length);
+			slot = new int[members.length];
+			for (int v=0; v < size; v++) {
+				slot[v] = v;
+				for (Friend f=members[v].first; f != null; f=f.next) {
+					if (f.fnum < v) {
+						uf.union(v, f.fnum);
+					}
+				}
+			}
+			slots = size;
+			components = uf;
+		}
+		return components;
+	}
+	
+	// moves the people of a new component to union-find items of their own
+	private void split(int[] people) {
+		if (slots + people.length > 2 * members.length) {
+			// mostly old items: start over when next needed
+			components = null;
+			return;
+		}
+		for (int v : people) {
+			slot[v] = newSlot();
+		}
+		for (int v : people) {
+			for (Friend f=members[v].first; f != null; f=f.next) {
+				components.union(slot[v], slot[f.fnum]);
+			}
+		}
+	}
+	
+	private int newSlot() {
+		if (slots == components.size()) {
+			components.grow(Math.max(components.size() * 2, 4));
+		}
+		return slots++;
+	}
+	
+	private boolean areFriends(int i, int j) {
+		for (Friend f=members[i].first; f != null; f=f.next) {
+			if (f.fnum == j) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// removes j from the friend list of i; false if not there
+	private boolean unlink(int i, int j) {
+		for (Friend f=members[i].first, prev=null; f != null; prev=f, f=f.next) {
+			if (f.fnum == j) {
+				if (prev == null) {
+					members[i].first = f.next;
+				} else {
+					prev.next = f.next;
+				}
+				return true;
+			}
+		}
+		return false;
+	}
 }
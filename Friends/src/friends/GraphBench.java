@@ -0,0 +1,782 @@
+package friends;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import structures.IntQueue;
+
+/**
+ * Command line benchmarks for the friends graph, run on synthetic graphs in the
+ * input format read by Graph(Scanner).
+ *
+ * Usage: java friends.GraphBench csr [people] [avgDegree] [queries]
+ *        java friends.GraphBench chain [people] [friendsPerJoin] [queries]
+ *        java friends.GraphBench bfs [people] [friendsPerJoin] [sources]
+ *        java friends.GraphBench biconnected [people] [friendsPerJoin]
+ *        java friends.GraphBench cliques [people] [avgDegree]
+ *        java friends.GraphBench load [people] [avgDegree] [file]
+ *        java friends.GraphBench snapshot [people] [avgDegree] [queries]
+ *        java friends.GraphBench dynamic [people] [avgDegree] [updates]
+ *        java friends.GraphBench service [people] [friendsPerJoin] [queries]
+ *        java friends.GraphBench landmarks [people] [friendsPerJoin] [k] [queries]
+ *
+ */
+public class GraphBench {
+
+	public static void main(String[] args)
+	throws IOException, InterruptedException {
+		String mode = args.length > 0 ? args[0] : "csr";
+		if ("csr".equals(mode)) {
+			csr(intArg(args, 1, 200000), intArg(args, 2, 10), intArg(args, 3, 1000));
+		} else if ("chain".equals(mode)) {
+			chain(intArg(args, 1, 1000000), intArg(args, 2, 5), intArg(args, 3, 1000));
+		} else if ("bfs".equals(mode)) {
+			bfs(intArg(args, 1, 4000000), intArg(args, 2, 8), intArg(args, 3, 10));
+		} else if ("biconnected".equals(mode)) {
+			biconnected(intArg(args, 1, 2000000), intArg(args, 2, 2));
+		} else if ("cliques".equals(mode)) {
+			cliques(intArg(args, 1, 2000000), intArg(args, 2, 10));
+		} else if ("load".equals(mode)) {
+			load(intArg(args, 1, 1000000), intArg(args, 2, 20), args.length > 3 ? args[3] : null);
+		} else if ("snapshot".equals(mode)) {
+			snapshot(intArg(args, 1, 1000000), intArg(args, 2, 10), intArg(args, 3, 1000));
+		} else if ("dynamic".equals(mode)) {
+			dynamic(intArg(args, 1, 200000), intArg(args, 2, 8), intArg(args, 3, 20000));
+		} else if ("service".equals(mode)) {
+			service(intArg(args, 1, 1000000), intArg(args, 2, 5), intArg(args, 3, 20000));
+		} else if ("landmarks".equals(mode)) {
+			landmarks(intArg(args, 1, 1000000), intArg(args, 2, 5), intArg(args, 3, 16), intArg(args, 4, 2000));
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+
+	private static int intArg(String[] args, int i, int dflt) {
+		return args.length > i ? Integer.parseInt(args[i]) : dflt;
+	}
+
+	/**
+	 * Generates a graph input with friendships between uniformly random people.
+	 * People are named p0, p1, ...; about 80% are students, spread over 20 schools.
+	 *
+	 * @param people Number of people
+	 * @param avgDegree Average number of friends per person
+	 * @param seed Random seed
+	 * @return Graph input text
+	 */
+	static String randomGraph(int people, int avgDegree, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		appendPeople(sb, people, random);
+		long edges = (long)people * avgDegree / 2;
+		for (long e=0; e < edges; e++) {
+			int i = random.nextInt(people), j = random.nextInt(people);
+			if (i != j) {
+				sb.append('p').append(i).append("|p").append(j).append('\n');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Generates a graph input with a power-law degree distribution, by
+	 * preferential attachment (Barabasi-Albert): people join one at a time, and
+	 * each befriends m people already there, picked with probability proportional
+	 * to how many friends they have.
+	 *
+	 * @param people Number of people
+	 * @param m Number of friends each person makes on joining
+	 * @param seed Random seed
+	 * @return Graph input text
+	 */
+	static String powerLawGraph(int people, int m, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		appendPeople(sb, people, random);
+		// every friendship adds both its people here, so a uniform pick from
+		// ends is a pick proportional to number of friends
+		int[] ends = new int[2 * m * people];
+		int count = 0;
+		for (int i=1; i < people; i++) {
+			for (int k=0; k < Math.min(m, i); k++) {
+				int j = count == 0 ? 0 : ends[random.nextInt(count)];
+				if (j == i) {
+					continue;
+				}
+				sb.append('p').append(i).append("|p").append(j).append('\n');
+				ends[count++] = i;
+				ends[count++] = j;
+			}
+		}
+		return sb.toString();
+	}
+
+	static void appendPeople(StringBuilder sb, int people, Random random) {
+		sb.append(people).append('\n');
+		for (int i=0; i < people; i++) {
+			sb.append('p').append(i);
+			if (random.nextInt(5) == 0) {
+				sb.append("|n\n");
+			} else {
+				sb.append("|y|school").append(random.nextInt(20)).append('\n');
+			}
+		}
+	}
+
+	/**
+	 * Builds both forms of a random graph, and compares their footprint and the
+	 * speed of shortestChain, cliques and connectors on them.
+	 */
+	private static void csr(int people, int avgDegree, int queries) {
+		String input = randomGraph(people, avgDegree, 39);
+		System.out.printf("%d people, about %d friendships%n", people, (long)people * avgDegree / 2);
+
+		long base = usedHeap();
+		long start = System.nanoTime();
+		Graph graph = new Graph(new Scanner(input));
+		long graphNanos = System.nanoTime() - start;
+		long graphBytes = usedHeap() - base;
+		start = System.nanoTime();
+		CsrGraph converted = new CsrGraph(graph);
+		long convertNanos = System.nanoTime() - start;
+
+		graph = null;
+		converted = null;
+		base = usedHeap();
+		start = System.nanoTime();
+		CsrGraph csr = new CsrGraph(new Scanner(input));
+		long csrNanos = System.nanoTime() - start;
+		long csrBytes = usedHeap() - base;
+		graph = new Graph(new Scanner(input));
+		System.out.printf("Graph:    load %6d ms, heap %7.1f MB%n", graphNanos / 1000000, graphBytes / 1e6);
+		System.out.printf("CsrGraph: load %6d ms, heap %7.1f MB (converted from Graph in %d ms)%n",
+				csrNanos / 1000000, csrBytes / 1e6, convertNanos / 1000000);
+
+		Random random = new Random(40);
+		String[][] pairs = new String[queries][2];
+		for (int q=0; q < queries; q++) {
+			pairs[q][0] = "p" + random.nextInt(people);
+			pairs[q][1] = "p" + random.nextInt(people);
+		}
+		boolean agree = true;
+		for (int round=0; round < 2; round++) {
+			long linked = 0, packed = 0;
+			for (String[] pair : pairs) {
+				start = System.nanoTime();
+				ArrayList<String> a = Friends.shortestChain(graph, pair[0], pair[1]);
+				linked += System.nanoTime() - start;
+				start = System.nanoTime();
+				ArrayList<String> b = Friends.shortestChain(csr, pair[0], pair[1]);
+				packed += System.nanoTime() - start;
+				agree &= a == null ? b == null : a.equals(b);
+			}
+			System.out.printf("shortestChain: Graph %8.1f us, CsrGraph %8.1f us per query%n",
+					linked / 1e3 / queries, packed / 1e3 / queries);
+		}
+
+		for (int round=0; round < 2; round++) {
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> a = Friends.cliques(graph, "school0");
+			long linked = System.nanoTime() - start;
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> b = Friends.cliques(csr, "school0");
+			long packed = System.nanoTime() - start;
+			agree &= sameCliques(a, b);
+			System.out.printf("cliques:       Graph %8d ms, CsrGraph %8d ms (%d cliques)%n",
+					linked / 1000000, packed / 1000000, b.size());
+		}
+
+		for (int round=0; round < 2; round++) {
+			start = System.nanoTime();
+			ArrayList<String> a = Friends.connectors(graph);
+			long linked = System.nanoTime() - start;
+			start = System.nanoTime();
+			ArrayList<String> b = Friends.connectors(csr);
+			long packed = System.nanoTime() - start;
+			agree &= new HashSet<String>(a).equals(new HashSet<String>(b));
+			System.out.printf("connectors:    Graph %8d ms, CsrGraph %8d ms (%d connectors)%n",
+					linked / 1000000, packed / 1000000, b.size());
+		}
+		System.out.println("Results agree: " + agree);
+	}
+
+	/**
+	 * Compares bidirectional search for shortest chains with a breadth first
+	 * search from one end, on a power-law graph, and times the public
+	 * Friends.shortestChain on both forms of the graph, names and all.
+	 */
+	private static void chain(int people, int m, int queries) {
+		String text = powerLawGraph(people, m, 40);
+		CsrGraph g = new CsrGraph(new Scanner(text));
+		Graph graph = new Graph(new Scanner(text));
+		text = null;
+		System.out.printf("%d people, %d friendships%n", g.size(), g.edgeCount());
+		Random random = new Random(41);
+		int[][] pairs = new int[queries][2];
+		for (int q=0; q < queries; q++) {
+			pairs[q][0] = random.nextInt(people);
+			pairs[q][1] = random.nextInt(people);
+		}
+		ChainSearch search = new ChainSearch(g);
+		int[] dist = new int[people], queue = new int[people];
+		for (int round=0; round < 3; round++) {
+			long oneWayNanos = 0, bothNanos = 0, oneWayVisited = 0, bothVisited = 0;
+			boolean agree = true;
+			for (int[] pair : pairs) {
+				long start = System.nanoTime();
+				int length = oneWay(g, pair[0], pair[1], dist, queue);
+				oneWayNanos += System.nanoTime() - start;
+				oneWayVisited += queue[0];
+				start = System.nanoTime();
+				int[] chain = search.chain(pair[0], pair[1]);
+				bothNanos += System.nanoTime() - start;
+				bothVisited += search.visited();
+				agree &= chain == null ? length < 0 : chain.length - 1 == length;
+			}
+			long graphNanos = 0, csrNanos = 0;
+			for (int[] pair : pairs) {
+				String p1 = "p" + pair[0], p2 = "p" + pair[1];
+				long start = System.nanoTime();
+				ArrayList<String> viaGraph = Friends.shortestChain(graph, p1, p2);
+				graphNanos += System.nanoTime() - start;
+				start = System.nanoTime();
+				ArrayList<String> viaCsr = Friends.shortestChain(g, p1, p2);
+				csrNanos += System.nanoTime() - start;
+				agree &= sameChain(viaGraph, viaCsr);
+			}
+			System.out.printf("one way: %8.1f us, %9d visited | bidirectional: %8.1f us, %9d visited | Friends.shortestChain: Graph %8.1f us, CsrGraph %8.1f us | agree %b%n",
+					oneWayNanos / 1e3 / queries, oneWayVisited / queries,
+					bothNanos / 1e3 / queries, bothVisited / queries,
+					graphNanos / 1e3 / queries, csrNanos / 1e3 / queries, agree);
+		}
+	}
+
+	/**
+	 * Compares the parallel direction-optimizing search with a sequential one,
+	 * computing distances from several sources of a power-law graph.
+	 */
+	private static void bfs(int people, int m, int sources) {
+		CsrGraph g = new CsrGraph(new Scanner(powerLawGraph(people, m, 41)));
+		System.out.printf("%d people, %d friendships, %d cores%n",
+				g.size(), g.edgeCount(), Runtime.getRuntime().availableProcessors());
+		ParallelBfs engine = new ParallelBfs(g);
+		Random random = new Random(42);
+		int[] queue = new int[people];
+		for (int round=0; round < 3; round++) {
+			long sequentialNanos = 0, parallelNanos = 0;
+			boolean agree = true;
+			for (int k=0; k < sources; k++) {
+				int source = random.nextInt(people);
+				int[] dist = new int[people];
+				long start = System.nanoTime();
+				oneWay(g, source, -1, dist, queue);
+				sequentialNanos += System.nanoTime() - start;
+				start = System.nanoTime();
+				int[] parallel = engine.distancesFrom(source);
+				parallelNanos += System.nanoTime() - start;
+				agree &= Arrays.equals(dist, parallel);
+			}
+			System.out.printf("sequential %7.1f ms, parallel %7.1f ms per source, agree %b%n",
+					sequentialNanos / 1e6 / sources, parallelNanos / 1e6 / sources, agree);
+		}
+	}
+
+	/**
+	 * Times Biconnectivity on a power-law graph, and on a single chain of the
+	 * same number of people, the deepest search there is.
+	 */
+	private static void biconnected(int people, int m) {
+		StringBuilder path = new StringBuilder();
+		appendPeople(path, people, new Random(43));
+		for (int i=0; i+1 < people; i++) {
+			path.append('p').append(i).append("|p").append(i+1).append('\n');
+		}
+		String[] names = { "power-law", "chain" };
+		String[] inputs = { powerLawGraph(people, m, 43), path.toString() };
+		path = null;
+		for (int k=0; k < inputs.length; k++) {
+			CsrGraph g = new CsrGraph(new Scanner(inputs[k]));
+			inputs[k] = null;
+			for (int round=0; round < 3; round++) {
+				long start = System.nanoTime();
+				Biconnectivity b = new Biconnectivity(g);
+				long nanos = System.nanoTime() - start;
+				System.out.printf("%-9s %d people, %d friendships: %6d ms, %d connectors, %d bridges, %d components%n",
+						names[k], g.size(), g.edgeCount(), nanos / 1000000,
+						b.connectors().length, b.bridges().length / 2, b.componentCount());
+			}
+		}
+	}
+
+	/**
+	 * Compares finding the cliques of every school one school at a time, with a
+	 * breadth first search per clique, to finding them all in one union-find pass.
+	 */
+	private static void cliques(int people, int avgDegree) {
+		String text = randomGraph(people, avgDegree, 44);
+		CsrGraph g = new CsrGraph(new Scanner(text));
+		Graph graph = new Graph(new Scanner(text));
+		text = null;
+		System.out.printf("%d people, %d friendships, %d schools%n", g.size(), g.edgeCount(), g.schools.length);
+		for (int round=0; round < 3; round++) {
+			long start = System.nanoTime();
+			HashMap<String,ArrayList<ArrayList<String>>> bySearch = new HashMap<String,ArrayList<ArrayList<String>>>();
+			for (int s=0; s < g.schools.length; s++) {
+				bySearch.put(g.schools[s], searchCliques(g, s));
+			}
+			long searchNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			HashMap<String,ArrayList<ArrayList<String>>> all = Friends.allCliques(g);
+			long allNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> one = Friends.cliques(g, g.schools[0]);
+			long oneNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> oneOnGraph = Friends.cliques(graph, g.schools[0]);
+			long graphNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> converted = Friends.cliques(new CsrGraph(graph), g.schools[0]);
+			long convertNanos = System.nanoTime() - start;
+			boolean agree = one.equals(oneOnGraph) && one.equals(converted);
+			int count = 0;
+			for (String school : bySearch.keySet()) {
+				agree &= sameCliques(bySearch.get(school), all.get(school));
+				count += all.get(school).size();
+			}
+			System.out.printf("search per school %6d ms | allCliques %6d ms | cliques of one school %6d ms, on Graph %6d ms, converting Graph to CSR first %6d ms | %d cliques, agree %b%n",
+					searchNanos / 1000000, allNanos / 1000000, oneNanos / 1000000, graphNanos / 1000000,
+					convertNanos / 1000000, count, agree);
+		}
+	}
+
+	/**
+	 * Cliques of one school by breadth first search from each unvisited student
+	 */
+	private static ArrayList<ArrayList<String>> searchCliques(CsrGraph g, int id) {
+		ArrayList<ArrayList<String>> cliques = new ArrayList<ArrayList<String>>();
+		boolean[] visited = new boolean[g.size()];
+		IntQueue queue = new IntQueue();
+		for (int s=0; s < g.size(); s++) {
+			if (g.school.get(s) != id || visited[s]) {
+				continue;
+			}
+			ArrayList<String> list = new ArrayList<String>();
+			queue.enqueue(s);
+			visited[s] = true;
+			while (!queue.isEmpty()) {
+				int v = queue.dequeue();
+				list.add(g.name(v));
+				for (int e=g.offsets.get(v); e < g.offsets.get(v+1); e++) {
+					int w = g.targets.get(e);
+					if (g.school.get(w) == id && !visited[w]) {
+						visited[w] = true;
+						queue.enqueue(w);
+					}
+				}
+			}
+			cliques.add(list);
+		}
+		return cliques;
+	}
+
+	/**
+	 * Tells if two lists of cliques have the same cliques, in any order
+	 */
+	private static boolean sameCliques(ArrayList<ArrayList<String>> a, ArrayList<ArrayList<String>> b) {
+		HashSet<HashSet<String>> x = new HashSet<HashSet<String>>(), y = new HashSet<HashSet<String>>();
+		for (ArrayList<String> clique : a) {
+			x.add(new HashSet<String>(clique));
+		}
+		for (ArrayList<String> clique : b) {
+			y.add(new HashSet<String>(clique));
+		}
+		return a.size() == b.size() && x.equals(y);
+	}
+
+	/**
+	 * Compares loading a graph file with Graph(Scanner), CsrGraph(Scanner) and
+	 * GraphLoader. Writes a random graph to a temporary file unless a file is given.
+	 */
+	private static void load(int people, int avgDegree, String fileName)
+	throws IOException {
+		File file;
+		if (fileName != null) {
+			file = new File(fileName);
+		} else {
+			file = File.createTempFile("friends", ".txt");
+			file.deleteOnExit();
+			Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+			out.write(randomGraph(people, avgDegree, 45));
+			out.close();
+		}
+		System.out.printf("%s: %.1f MB, %d cores%n", file, file.length() / 1e6, Runtime.getRuntime().availableProcessors());
+		CsrGraph reference = null;
+		for (int round=0; round < 3; round++) {
+			long start = System.nanoTime();
+			Graph graph = new Graph(new Scanner(file));
+			long graphNanos = System.nanoTime() - start;
+			graph = null;
+			start = System.nanoTime();
+			reference = new CsrGraph(new Scanner(file));
+			long csrNanos = System.nanoTime() - start;
+			start = System.nanoTime();
+			CsrGraph loaded = GraphLoader.load(file);
+			long loaderNanos = System.nanoTime() - start;
+			System.out.printf("Graph(Scanner) %6d ms | CsrGraph(Scanner) %6d ms | GraphLoader %6d ms | same graph %b%n",
+					graphNanos / 1000000, csrNanos / 1000000, loaderNanos / 1000000, sameGraph(reference, loaded));
+		}
+	}
+
+	/**
+	 * Compares loading a graph from text with opening a snapshot of it, and
+	 * query speed on the heap graph and on the mapped one.
+	 */
+	private static void snapshot(int people, int avgDegree, int queries)
+	throws IOException {
+		File text = File.createTempFile("friends", ".txt");
+		File snap = File.createTempFile("friends", GraphSnapshot.SUFFIX);
+		text.deleteOnExit();
+		snap.deleteOnExit();
+		Writer out = new OutputStreamWriter(new FileOutputStream(text), StandardCharsets.UTF_8);
+		out.write(powerLawGraph(people, avgDegree / 2, 46));
+		out.close();
+		long start = System.nanoTime();
+		CsrGraph loaded = GraphLoader.load(text);
+		long loadNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		GraphSnapshot.write(loaded, snap);
+		long writeNanos = System.nanoTime() - start;
+		start = System.nanoTime();
+		CsrGraph mapped = GraphSnapshot.open(snap);
+		long openNanos = System.nanoTime() - start;
+		System.out.printf("text %.1f MB loaded in %d ms | snapshot %.1f MB written in %d ms, opened in %.2f ms | same graph %b%n",
+				text.length() / 1e6, loadNanos / 1000000, snap.length() / 1e6, writeNanos / 1000000,
+				openNanos / 1e6, sameGraph(loaded, mapped));
+
+		Random random = new Random(47);
+		String[][] pairs = new String[queries][2];
+		for (int q=0; q < queries; q++) {
+			pairs[q][0] = "p" + random.nextInt(people);
+			pairs[q][1] = "p" + random.nextInt(people);
+		}
+		for (int round=0; round < 3; round++) {
+			long heap = 0, map = 0;
+			boolean agree = true;
+			for (String[] pair : pairs) {
+				start = System.nanoTime();
+				ArrayList<String> a = Friends.shortestChain(loaded, pair[0], pair[1]);
+				heap += System.nanoTime() - start;
+				start = System.nanoTime();
+				ArrayList<String> b = Friends.shortestChain(mapped, pair[0], pair[1]);
+				map += System.nanoTime() - start;
+				agree &= a == null ? b == null : a.equals(b);
+			}
+			System.out.printf("shortestChain: heap %8.1f us, mapped %8.1f us per query, agree %b%n",
+					heap / 1e3 / queries, map / 1e3 / queries, agree);
+		}
+	}
+
+	/**
+	 * Times keeping components and connectors up to date through random
+	 * updates, against finding them from scratch, and checks the results.
+	 */
+	private static void dynamic(int people, int avgDegree, int updates) {
+		Graph g = new Graph(new Scanner(randomGraph(people, avgDegree, 48)));
+		long start = System.nanoTime();
+		int count = g.componentCount();
+		long scratch = System.nanoTime() - start;
+		System.out.printf("%d people, %d components, found from scratch in %.1f ms%n",
+				g.size(), count, scratch / 1e6);
+
+		Random random = new Random(49);
+		for (int round=0; round < 3; round++) {
+			int added = 0, removed = 0, joined = 0;
+			start = System.nanoTime();
+			for (int u=0; u < updates; u++) {
+				int kind = random.nextInt(10);
+				if (kind == 0) {
+					g.addPerson("new" + round + "_" + u, random.nextBoolean() ? "school0" : null);
+				} else if (kind < 4) {
+					Person p = g.members[random.nextInt(g.size())];
+					if (p.first != null && g.removeFriendship(p.name, g.members[p.first.fnum].name)) {
+						removed++;
+					}
+				} else if (g.addFriendship(g.members[random.nextInt(g.size())].name, g.members[random.nextInt(g.size())].name)) {
+					added++;
+				}
+				count = g.componentCount();
+				if (g.connected(g.members[random.nextInt(g.size())].name, g.members[random.nextInt(g.size())].name)) {
+					joined++;
+				}
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.printf("%d updates (%d added, %d removed), each with componentCount and connected: %.1f us per update, %d components%n",
+					updates, added, removed, nanos / 1e3 / updates, count);
+		}
+		CsrGraph csr = new CsrGraph(g);
+		structures.UnionFind uf = new structures.UnionFind(csr.size());
+		for (int v=0; v < csr.size(); v++) {
+			for (int e=csr.offsets.get(v); e < csr.offsets.get(v+1); e++) {
+				uf.union(v, csr.targets.get(e));
+			}
+		}
+		System.out.printf("components agree with a fresh count: %b%n", uf.count() == g.componentCount());
+
+		// friends of friends becoming friends, mostly inside a biconnected component
+		for (int round=0; round < 3; round++) {
+			start = System.nanoTime();
+			int n = Friends.connectors(g).size();
+			long first = System.nanoTime() - start;
+			int closures = 0;
+			start = System.nanoTime();
+			for (int u=0; u < updates / 10; u++) {
+				Person p = g.members[random.nextInt(g.size())];
+				if (p.first == null || g.members[p.first.fnum].first == null) {
+					continue;
+				}
+				Person q = g.members[g.members[p.first.fnum].first.fnum];
+				if (g.addFriendship(p.name, q.name)) {
+					closures++;
+				}
+				n = Friends.connectors(g).size();
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.printf("connectors: %.1f ms from scratch, then %d friend-of-friend adds each followed by connectors: %.1f us per add, %d connectors%n",
+					first / 1e6, closures, nanos / 1e3 / Math.max(closures, 1), n);
+		}
+		HashSet<String> fresh = new HashSet<String>(Friends.connectors(new CsrGraph(g)));
+		System.out.printf("connectors agree with a fresh search: %b%n",
+				fresh.equals(new HashSet<String>(Friends.connectors(g))));
+	}
+
+	/**
+	 * Measures throughput of shortest chain queries: Friends.shortestChain,
+	 * which reuses the graph's search when no other query holds it, against a
+	 * ChainService reusing searches, called directly from client threads and
+	 * through its executor.
+	 */
+	private static void service(int people, int m, int queries)
+	throws InterruptedException {
+		final CsrGraph g = new CsrGraph(new Scanner(powerLawGraph(people, m, 50)));
+		int processors = Runtime.getRuntime().availableProcessors();
+		System.out.printf("%d people, %d friendships, %d processors%n", g.size(), g.edgeCount(), processors);
+		Random random = new Random(51);
+		final ArrayList<String[]> pairs = new ArrayList<String[]>(queries);
+		for (int q=0; q < queries; q++) {
+			pairs.add(new String[] { "p" + random.nextInt(people), "p" + random.nextInt(people) });
+		}
+		ArrayList<ArrayList<String>> expected = new ArrayList<ArrayList<String>>(queries);
+		ChainService pooled = new ChainService(g, processors, false);
+		ChainService perTask = new ChainService(g, processors, true);
+		for (int round=0; round < 3; round++) {
+			long start = System.nanoTime();
+			expected.clear();
+			for (String[] pair : pairs) {
+				expected.add(Friends.shortestChain(g, pair[0], pair[1]));
+			}
+			long perCall = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			boolean agree = true;
+			for (int q=0; q < queries; q++) {
+				ArrayList<String> chain = pooled.shortestChain(pairs.get(q)[0], pairs.get(q)[1]);
+				agree &= sameChain(chain, expected.get(q));
+			}
+			long direct = System.nanoTime() - start;
+
+			final ChainService service = pooled;
+			final AtomicReferenceArray<ArrayList<String>> clientResults = new AtomicReferenceArray<ArrayList<String>>(queries);
+			final int clients = 4 * processors;
+			Thread[] threads = new Thread[clients];
+			start = System.nanoTime();
+			for (int t=0; t < clients; t++) {
+				final int first = t;
+				threads[t] = new Thread(() -> {
+					for (int q=first; q < pairs.size(); q+=clients) {
+						clientResults.set(q, service.shortestChain(pairs.get(q)[0], pairs.get(q)[1]));
+					}
+				});
+				threads[t].start();
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			long threaded = System.nanoTime() - start;
+			for (int q=0; q < queries; q++) {
+				agree &= sameChain(clientResults.get(q), expected.get(q));
+			}
+
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> batch = pooled.shortestChains(pairs);
+			long pool = System.nanoTime() - start;
+			start = System.nanoTime();
+			ArrayList<ArrayList<String>> virtual = perTask.shortestChains(pairs);
+			long tasks = System.nanoTime() - start;
+			for (int q=0; q < queries; q++) {
+				agree &= sameChain(batch.get(q), expected.get(q)) && sameChain(virtual.get(q), expected.get(q));
+			}
+			System.out.printf("queries/s: Friends.shortestChain %8.0f | service direct %8.0f, %d client threads %8.0f, pool %8.0f, %s %8.0f | agree %b%n",
+					queries / (perCall / 1e9), queries / (direct / 1e9), clients, queries / (threaded / 1e9),
+					queries / (pool / 1e9), perTask.virtualThreads() ? "virtual threads" : "pool (no virtual threads)",
+					queries / (tasks / 1e9), agree);
+		}
+		pooled.close();
+		perTask.close();
+	}
+
+	/**
+	 * Builds a landmark index on a power-law graph, and compares its bounds and
+	 * chains with exact bidirectional search, in accuracy and speed.
+	 */
+	private static void landmarks(int people, int m, int k, int queries)
+	throws IOException {
+		CsrGraph g = new CsrGraph(new Scanner(powerLawGraph(people, m, 52)));
+		System.out.printf("%d people, %d friendships, %d landmarks%n", g.size(), g.edgeCount(), k);
+		long start = System.nanoTime();
+		LandmarkIndex index = new LandmarkIndex(g, k);
+		long build = System.nanoTime() - start;
+		File file = File.createTempFile("landmarks", ".idx");
+		file.deleteOnExit();
+		start = System.nanoTime();
+		index.write(file);
+		long write = System.nanoTime() - start;
+		start = System.nanoTime();
+		LandmarkIndex read = LandmarkIndex.read(file, g);
+		long readNanos = System.nanoTime() - start;
+		System.out.printf("built in %d ms, %.1f MB written in %d ms, read in %d ms%n",
+				build / 1000000, file.length() / 1e6, write / 1000000, readNanos / 1000000);
+
+		Random random = new Random(53);
+		int[][] pairs = new int[queries][2];
+		for (int q=0; q < queries; q++) {
+			pairs[q][0] = random.nextInt(people);
+			pairs[q][1] = random.nextInt(people);
+		}
+		ChainSearch search = new ChainSearch(g);
+		ChainService service = new ChainService(g, 1, false);
+		for (int round=0; round < 3; round++) {
+			long exactNanos = 0, boundNanos = 0, chainNanos = 0, hybridNanos = 0;
+			int upperExact = 0, lowerExact = 0, chainExact = 0, connected = 0;
+			long error = 0;
+			boolean agree = true;
+			for (int[] pair : pairs) {
+				start = System.nanoTime();
+				int[] exact = search.chain(pair[0], pair[1]);
+				exactNanos += System.nanoTime() - start;
+				start = System.nanoTime();
+				int lower = read.lowerBound(pair[0], pair[1]), upper = read.upperBound(pair[0], pair[1]);
+				boundNanos += System.nanoTime() - start;
+				start = System.nanoTime();
+				int[] approx = read.approximateChain(pair[0], pair[1]);
+				chainNanos += System.nanoTime() - start;
+				String p1 = g.name(pair[0]), p2 = g.name(pair[1]);
+				start = System.nanoTime();
+				ArrayList<String> hybrid = read.shortestChain(p1, p2, service);
+				hybridNanos += System.nanoTime() - start;
+				if (exact == null) {
+					agree &= lower == Integer.MAX_VALUE || approx == null;
+					continue;
+				}
+				int length = exact.length - 1;
+				connected++;
+				agree &= lower <= length && length <= upper && approx.length - 1 <= upper
+						&& (p1.equals(p2) ? hybrid == null : hybrid.size() == exact.length);
+				upperExact += upper == length ? 1 : 0;
+				lowerExact += lower == length ? 1 : 0;
+				chainExact += approx.length - 1 == length ? 1 : 0;
+				error += approx.length - 1 - length;
+			}
+			System.out.printf("exact search %7.1f us | bounds %5.2f us, chain %5.2f us: upper exact %.1f%%, lower exact %.1f%%, chain exact %.1f%%, %.2f hops too long on average | exact via index %7.1f us | agree %b%n",
+					exactNanos / 1e3 / queries, boundNanos / 1e3 / queries, chainNanos / 1e3 / queries,
+					100.0 * upperExact / connected, 100.0 * lowerExact / connected, 100.0 * chainExact / connected,
+					(double)error / connected, hybridNanos / 1e3 / queries, agree);
+		}
+		service.close();
+		for (int q=0; q < Math.min(queries, 1000); q++) {
+			if (index.upperBound(pairs[q][0], pairs[q][1]) != read.upperBound(pairs[q][0], pairs[q][1])) {
+				System.out.println("Index read back differs");
+				return;
+			}
+		}
+	}
+
+	private static boolean sameChain(ArrayList<String> a, ArrayList<String> b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * Tells if two graphs have the same people, schools and friendships, whatever
+	 * the order of their friend lists
+	 */
+	static boolean sameGraph(CsrGraph a, CsrGraph b) {
+		if (a.size() != b.size() || a.edgeCount() != b.edgeCount()) {
+			return false;
+		}
+		for (int v=0; v < a.size(); v++) {
+			if (!a.name(v).equals(b.name(v)) || a.degree(v) != b.degree(v)
+					|| (a.school.get(v) < 0 ? b.school.get(v) >= 0 : !a.schools[a.school.get(v)].equals(b.schools[b.school.get(v)]))) {
+				return false;
+			}
+			int[] x = new int[a.degree(v)], y = new int[b.degree(v)];
+			for (int i=0; i < x.length; i++) {
+				x[i] = a.targets.get(a.offsets.get(v) + i);
+				y[i] = b.targets.get(b.offsets.get(v) + i);
+			}
+			Arrays.sort(x);
+			Arrays.sort(y);
+			if (!Arrays.equals(x, y)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Breadth first search from one end, for comparison.
+	 *
+	 * @return Length of shortest chain, -1 if none; queue[0] is set to the
+	 *         number of people visited
+	 */
+	private static int oneWay(CsrGraph g, int from, int to, int[] dist, int[] queue) {
+		Arrays.fill(dist, -1);
+		int head = 0, tail = 0;
+		queue[tail++] = from;
+		dist[from] = 0;
+		int length = from == to ? 0 : -1;
+		while (head < tail && length < 0) {
+			int v = queue[head++];
+			for (int e=g.offsets.get(v); e < g.offsets.get(v+1); e++) {
+				int w = g.targets.get(e);
+				if (dist[w] < 0) {
+					dist[w] = dist[v] + 1;
+					queue[tail++] = w;
+					if (w == to) {
+						length = dist[w];
+						break;
+					}
+				}
+			}
+		}
+		queue[0] = tail;
+		return length;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i=0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,384 @@
+package friends;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * This class loads graph files in the format read by Graph(Scanner) straight
+ * into a CsrGraph, using all cores for the friendships.
+ *
+ * The people section is read sequentially, in large blocks, into a NameTable;
+ * names never become Strings. The friendship section is then split into
+ * chunks that worker threads read with positional reads on a shared
+ * FileChannel. Each worker looks names up in the (now read-only) NameTable,
+ * keeps the pairs of people it finds, and counts friends per person in a
+ * shared atomic array. After a prefix sum of the counts, the workers scatter
+ * their pairs into the CSR arrays in parallel, and each friend list is sorted
+ * by person number, so the result is the same whatever the thread timing.
+ *
+ * The first line giving the number of people is optional. Without it the
+ * people section ends at the first line of two fields whose second field is
+ * the name of someone already read; a person named "y" or "n" can then be
+ * mistaken for a friendship. Blank lines and carriage returns are ignored.
+ *
+ */
+public class GraphLoader {
+
+	/**
+	 * Size of blocks read by one read call
+	 */
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * Size of chunks of the friendship section handed to workers
+	 */
+	private static final int CHUNK_SIZE = 16 << 20;
+
+	// prevent instantiation
+	private GraphLoader() { }
+
+	/**
+	 * Loads a graph file with as many threads as there are cores.
+	 *
+	 * @param file Graph file
+	 * @return Graph
+	 * @throws IOException If the file can't be read, or is not a graph file
+	 */
+	public static CsrGraph load(File file)
+	throws IOException {
+		return load(file, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Loads a graph file.
+	 *
+	 * @param file Graph file
+	 * @param threads Number of threads to read friendships with
+	 * @return Graph
+	 * @throws IOException If the file can't be read, or is not a graph file
+	 */
+	public static CsrGraph load(File file, int threads)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		try {
+			FileChannel channel = raf.getChannel();
+			People people = readPeople(channel);
+			int n = people.names.size();
+
+			// count friends per person while parsing chunks
+			long length = channel.size();
+			int chunks = (int)((length - people.end + CHUNK_SIZE - 1) / CHUNK_SIZE);
+			AtomicIntegerArray degree = new AtomicIntegerArray(n);
+			AtomicInteger nextChunk = new AtomicInteger();
+			ArrayList<Future<int[]>> parsed = new ArrayList<Future<int[]>>();
+			for (int t=0; t < threads; t++) {
+				parsed.add(pool.submit(new Parser(channel, people, chunks, nextChunk, degree)));
+			}
+			ArrayList<int[]> pairLists = new ArrayList<int[]>();
+			for (Future<int[]> f : parsed) {
+				pairLists.add(get(f));
+			}
+
+			int[] offsets = new int[n+1];
+			for (int v=0; v < n; v++) {
+				offsets[v+1] = offsets[v] + degree.get(v);
+			}
+			int[] targets = new int[offsets[n]];
+			AtomicIntegerArray pos = new AtomicIntegerArray(Arrays.copyOf(offsets, n));
+			ArrayList<Future<?>> done = new ArrayList<Future<?>>();
+			for (int[] pairs : pairLists) {
+				done.add(pool.submit(() -> {
+					for (int e=0; e < pairs.length; e += 2) {
+						targets[pos.getAndIncrement(pairs[e])] = pairs[e+1];
+						targets[pos.getAndIncrement(pairs[e+1])] = pairs[e];
+					}
+				}));
+			}
+			for (Future<?> f : done) {
+				get(f);
+			}
+			done.clear();
+			for (int t=0; t < threads; t++) {
+				int lo = (int)((long)n * t / threads), hi = (int)((long)n * (t+1) / threads);
+				done.add(pool.submit(() -> {
+					for (int v=lo; v < hi; v++) {
+						Arrays.sort(targets, offsets[v], offsets[v+1]);
+					}
+				}));
+			}
+			for (Future<?> f : done) {
+				get(f);
+			}
+			people.names.trim();
+			return new CsrGraph(people.names, IntBuffer.wrap(people.school), people.schools(),
+					IntBuffer.wrap(offsets), IntBuffer.wrap(targets));
+		} finally {
+			pool.shutdown();
+			raf.close();
+		}
+	}
+
+	/**
+	 * People section of a file
+	 */
+	private static final class People {
+		final NameTable names;
+		final NameTable schools = new NameTable(16, 256);
+		int[] school;
+
+		/**
+		 * Offset in file where the friendships start
+		 */
+		long end;
+
+		People(int n, long bytes) {
+			names = new NameTable(n, (int)Math.min(Integer.MAX_VALUE - 8, bytes));
+			school = new int[n];
+		}
+
+		String[] schools() {
+			String[] s = new String[schools.size()];
+			for (int i=0; i < s.length; i++) {
+				s[i] = schools.get(i);
+			}
+			return s;
+		}
+	}
+
+	/**
+	 * Reads the optional count line and the people section.
+	 */
+	private static People readPeople(FileChannel channel)
+	throws IOException {
+		byte[] block = new byte[BLOCK_SIZE];
+		long position = 0;
+		int filled = read(channel, position, block, 0, block.length);
+		int pos = 0, end = lineEnd(block, 0, filled);
+		int last = trimEnd(block, 0, end);
+		int expected = -1;
+		if (last > 0 && isNumber(block, 0, last)) {
+			expected = Integer.parseInt(new String(block, 0, last, "US-ASCII"));
+			pos = end + 1;
+		}
+		// without a count, guess from file size: about 32 bytes per person line
+		People people = new People(expected >= 0 ? expected : (int)Math.min(1 << 20, channel.size() / 32 + 16),
+				expected >= 0 ? (long)expected * 8 : 1 << 20);
+		int n = 0;
+		for (;;) {
+			if (n == expected) {
+				break;
+			}
+			end = lineEnd(block, pos, filled);
+			if (end == filled && filled == block.length) {
+				// line runs past the block: move it to the front and read on
+				position += pos;
+				System.arraycopy(block, pos, block, 0, filled - pos);
+				filled -= pos;
+				pos = 0;
+				if (filled == block.length) {
+					block = Arrays.copyOf(block, block.length * 2);
+				}
+				filled += read(channel, position + filled, block, filled, block.length - filled);
+				continue;
+			}
+			if (pos >= filled) {
+				if (expected >= 0) {
+					throw new IOException("File ends after " + n + " of " + expected + " people");
+				}
+				break;
+			}
+			last = trimEnd(block, pos, end);
+			if (last > pos) {
+				int bar1 = indexOf(block, pos, last, '|');
+				int bar2 = bar1 < 0 ? -1 : indexOf(block, bar1 + 1, last, '|');
+				if (bar1 < 0 || bar1 + 1 == (bar2 < 0 ? last : bar2)) {
+					throw new IOException("Not a person: " + new String(block, pos, last - pos, "UTF-8"));
+				}
+				if (expected < 0 && bar2 < 0 && people.names.find(block, bar1 + 1, last - bar1 - 1) >= 0) {
+					// a friendship: people end here
+					break;
+				}
+				if (n == people.school.length) {
+					people.school = Arrays.copyOf(people.school, n * 2);
+				}
+				people.names.add(block, pos, bar1 - pos);
+				byte yn = block[bar1 + 1]; // student or not
+				if (yn == 'y' || yn == 'Y') {
+					if (bar2 < 0) {
+						throw new IOException("Student without a school: " + new String(block, pos, last - pos, "UTF-8"));
+					}
+					int id = people.schools.find(block, bar2 + 1, last - bar2 - 1);
+					people.school[n] = id >= 0 ? id : people.schools.add(block, bar2 + 1, last - bar2 - 1);
+				} else {
+					people.school[n] = -1;
+				}
+				n++;
+			}
+			pos = end + 1;
+		}
+		people.school = Arrays.copyOf(people.school, n);
+		people.end = position + Math.min(pos, filled);
+		return people;
+	}
+
+	/**
+	 * Parses chunks of the friendship section, taking the next chunk not yet
+	 * taken until there are none left.
+	 */
+	private static final class Parser implements Callable<int[]> {
+		final FileChannel channel;
+		final People people;
+		final int chunks;
+		final AtomicInteger nextChunk;
+		final AtomicIntegerArray degree;
+
+		/**
+		 * Pairs of people found, as two entries each
+		 */
+		int[] pairs = new int[1024];
+		int count;
+
+		/**
+		 * Chunk being parsed, with one byte before it and the rest of its
+		 * last line after it
+		 */
+		byte[] buf = new byte[CHUNK_SIZE + 1];
+
+		Parser(FileChannel channel, People people, int chunks, AtomicInteger nextChunk, AtomicIntegerArray degree) {
+			this.channel = channel;
+			this.people = people;
+			this.chunks = chunks;
+			this.nextChunk = nextChunk;
+			this.degree = degree;
+		}
+
+		public int[] call()
+		throws IOException {
+			long size = channel.size();
+			for (int c; (c=nextChunk.getAndIncrement()) < chunks; ) {
+				long from = people.end + (long)c * CHUNK_SIZE;
+				long to = Math.min(size, from + CHUNK_SIZE);
+				// read from one byte early, so a line starting right at from is
+				// seen to start there
+				long start = c == 0 ? from : from - 1;
+				int limit = (int)(to - start);
+				int filled = read(channel, start, buf, 0, limit);
+				while (filled > 0 && buf[filled-1] != '\n' && start + filled < size) {
+					if (filled + BLOCK_SIZE > buf.length) {
+						buf = Arrays.copyOf(buf, buf.length + BLOCK_SIZE);
+					}
+					filled += read(channel, start + filled, buf, filled, BLOCK_SIZE);
+				}
+				int pos = c == 0 ? 0 : lineEnd(buf, 0, filled) + 1;
+				// lines starting at limit or later belong to the next chunk
+				while (pos < limit && pos < filled) {
+					int end = lineEnd(buf, pos, filled);
+					addFriendship(pos, trimEnd(buf, pos, end));
+					pos = end + 1;
+				}
+			}
+			return Arrays.copyOf(pairs, count);
+		}
+
+		private void addFriendship(int from, int to)
+		throws IOException {
+			if (from == to) {
+				return;
+			}
+			int bar = indexOf(buf, from, to, '|');
+			int i = bar < 0 ? -1 : people.names.find(buf, from, bar - from);
+			int j = bar < 0 ? -1 : people.names.find(buf, bar + 1, to - bar - 1);
+			if (i < 0 || j < 0) {
+				throw new IOException("Not a friendship of two people: " + new String(buf, from, to - from, "UTF-8"));
+			}
+			if (count + 2 > pairs.length) {
+				pairs = Arrays.copyOf(pairs, pairs.length * 2);
+			}
+			pairs[count++] = i;
+			pairs[count++] = j;
+			degree.incrementAndGet(i);
+			degree.incrementAndGet(j);
+		}
+	}
+
+	/**
+	 * Reads up to len bytes at a file position into block[off..], stopping
+	 * early only at the end of the file.
+	 *
+	 * @return Number of bytes read
+	 */
+	private static int read(FileChannel channel, long position, byte[] block, int off, int len)
+	throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(block, off, len);
+		while (buf.hasRemaining()) {
+			if (channel.read(buf, position + buf.position() - off) < 0) {
+				break;
+			}
+		}
+		return buf.position() - off;
+	}
+
+	private static int lineEnd(byte[] b, int from, int to) {
+		while (from < to && b[from] != '\n') {
+			from++;
+		}
+		return from;
+	}
+
+	/**
+	 * Returns the end of b[from..to-1] without trailing whitespace
+	 */
+	private static int trimEnd(byte[] b, int from, int to) {
+		while (to > from && (b[to-1] & 0xff) <= ' ') {
+			to--;
+		}
+		return to;
+	}
+
+	private static int indexOf(byte[] b, int from, int to, char c) {
+		for (int i=from; i < to; i++) {
+			if (b[i] == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static boolean isNumber(byte[] b, int from, int to) {
+		for (int i=from; i < to; i++) {
+			if (b[i] < '0' || b[i] > '9') {
+				return false;
+			}
+		}
+		return to > from;
+	}
+
+	private static <T> T get(Future<T> f)
+	throws IOException {
+		try {
+			return f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while loading", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException)e.getCause();
+			}
+			throw new IOException("Failed to load", e.getCause());
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package friends;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class writes a CsrGraph to a binary snapshot file, and opens snapshots
+ * as CsrGraphs served directly from memory-mapped files.
+ *
+ * Opening a snapshot takes time independent of the size of the graph: each
+ * section is mapped, and only the (few) school names are decoded. The Friends
+ * algorithms then run off the mapped buffers, and processes that open the same
+ * snapshot share its pages in the OS page cache.
+ *
+ * Snapshot layout (all values big-endian):
+ * <pre>
+ *   header      MAGIC, VERSION, people, targets, nameBytes, tableSize,
+ *               schools, schoolBytes                          (8 ints)
+ *   offsets     CSR offsets                                    (people+1 ints)
+ *   targets     CSR friend lists                               (targets ints)
+ *   school      school id of each person, -1 if none            (people ints)
+ *   nameStart   start of each name in nameBytes, plus the end  (people+1 ints)
+ *   nameHash    hash code of each name                         (people ints)
+ *   nameTable   hash table of name number + 1                  (tableSize ints)
+ *   schoolStart start of each school name, plus the end         (schools+1 ints)
+ *   names       UTF-8 names back to back, padded to 4 bytes     (nameBytes bytes)
+ *   schoolNames UTF-8 school names back to back                (schoolBytes bytes)
+ * </pre>
+ * Sections are mapped one by one, so each must be under 2GB, but the file
+ * can be bigger.
+ *
+ */
+public class GraphSnapshot {
+
+	/**
+	 * File name suffix for graph snapshots
+	 */
+	public static final String SUFFIX = ".graph";
+
+	private static final int MAGIC = 0x46524e44; // "FRND"
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 8;
+
+	// prevent instantiation
+	private GraphSnapshot() { }
+
+	/**
+	 * Writes a graph as a snapshot.
+	 *
+	 * @param g Graph to write
+	 * @param file Snapshot file to write
+	 * @throws IOException If the file can't be written
+	 */
+	public static void write(CsrGraph g, File file)
+	throws IOException {
+		NameTable names = g.names;
+		int n = g.size();
+		int nameBytes = names.start.get(n);
+		byte[][] schools = new byte[g.schools.length][];
+		int schoolBytes = 0;
+		for (int i=0; i < schools.length; i++) {
+			schools[i] = g.schools[i].getBytes(StandardCharsets.UTF_8);
+			schoolBytes += schools[i].length;
+		}
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(n);
+			out.writeInt(g.targets.limit());
+			out.writeInt(nameBytes);
+			out.writeInt(names.table.capacity());
+			out.writeInt(schools.length);
+			out.writeInt(schoolBytes);
+			writeInts(out, g.offsets, n + 1);
+			writeInts(out, g.targets, g.targets.limit());
+			writeInts(out, g.school, n);
+			writeInts(out, names.start, n + 1);
+			writeInts(out, names.hash, n);
+			writeInts(out, names.table, names.table.capacity());
+			int pos = 0;
+			for (byte[] school : schools) {
+				out.writeInt(pos);
+				pos += school.length;
+			}
+			out.writeInt(pos);
+			for (int i=0; i < nameBytes; i++) {
+				out.write(names.bytes.get(i));
+			}
+			for (int i=nameBytes; i % 4 != 0; i++) {
+				out.write(0);
+			}
+			for (byte[] school : schools) {
+				out.write(school);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	private static void writeInts(DataOutputStream out, IntBuffer buf, int count)
+	throws IOException {
+		for (int i=0; i < count; i++) {
+			out.writeInt(buf.get(i));
+		}
+	}
+
+	/**
+	 * Opens a snapshot by mapping it into memory.
+	 *
+	 * @param file Snapshot file, as written by write
+	 * @return Graph served from the mapped file
+	 * @throws IOException If the file can't be mapped, or is not a graph snapshot
+	 */
+	public static CsrGraph open(File file)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			IntBuffer header = map(channel, 0, HEADER_INTS * 4).asIntBuffer();
+			if (header.get(0) != MAGIC || header.get(1) != VERSION) {
+				throw new IOException("not a graph snapshot");
+			}
+			int n = header.get(2), targetCount = header.get(3), nameBytes = header.get(4);
+			int tableSize = header.get(5), schoolCount = header.get(6), schoolBytes = header.get(7);
+			long pos = HEADER_INTS * 4;
+			IntBuffer offsets = map(channel, pos, (n + 1) * 4L).asIntBuffer();
+			pos += (n + 1) * 4L;
+			IntBuffer targets = map(channel, pos, targetCount * 4L).asIntBuffer();
+			pos += targetCount * 4L;
+			IntBuffer school = map(channel, pos, n * 4L).asIntBuffer();
+			pos += n * 4L;
+			IntBuffer nameStart = map(channel, pos, (n + 1) * 4L).asIntBuffer();
+			pos += (n + 1) * 4L;
+			IntBuffer nameHash = map(channel, pos, n * 4L).asIntBuffer();
+			pos += n * 4L;
+			IntBuffer nameTable = map(channel, pos, tableSize * 4L).asIntBuffer();
+			pos += tableSize * 4L;
+			IntBuffer schoolStart = map(channel, pos, (schoolCount + 1) * 4L).asIntBuffer();
+			pos += (schoolCount + 1) * 4L;
+			ByteBuffer names = map(channel, pos, nameBytes);
+			pos += (nameBytes + 3) & ~3;
+			ByteBuffer schoolNames = map(channel, pos, schoolBytes);
+			String[] schools = new String[schoolCount];
+			for (int i=0; i < schoolCount; i++) {
+				byte[] b = new byte[schoolStart.get(i+1) - schoolStart.get(i)];
+				schoolNames.position(schoolStart.get(i));
+				schoolNames.get(b);
+				schools[i] = new String(b, StandardCharsets.UTF_8);
+			}
+			return new CsrGraph(new NameTable(names, nameStart, nameHash, nameTable, n),
+					school, schools, offsets, targets);
+		} finally {
+			// the mappings stay valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	private static ByteBuffer map(FileChannel channel, long pos, long size)
+	throws IOException {
+		if (pos + size > channel.size()) {
+			throw new IOException("graph snapshot is truncated");
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, pos, size);
+	}
+
+	public static void main(String[] args)
+	throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java friends.GraphSnapshot graphFile snapshotFile");
+			return;
+		}
+		long start = System.nanoTime();
+		CsrGraph g = GraphLoader.load(new File(args[0]));
+		write(g, new File(args[1]));
+		System.out.printf("%d people and %d friendships written to %s in %.1f ms%n", g.size(), g.edgeCount(),
+				args[1], (System.nanoTime() - start) / 1e6);
+	}
+}
@@ -0,0 +1,387 @@
+package friends;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+/**
+ * This class is a distance oracle for a CsrGraph: it keeps the number of hops
+ * from each of k landmarks (the people with the most friends) to everyone,
+ * and bounds the length of the shortest chain between any two people in O(k)
+ * from them, by the triangle inequality:
+ * <pre>
+ *   max over landmarks L of |d(L,a) - d(L,b)|  &lt;=  d(a,b)  &lt;=  min over L of d(L,a) + d(L,b)
+ * </pre>
+ * On a small-world graph most shortest chains pass through or near a hub, so
+ * the upper bound is often exact, and a chain of that length is found by
+ * walking down the distances of the best landmark, without a search.
+ *
+ * Distances are kept as shorts, person by person: the k distances of a person
+ * are next to each other, so a query reads two runs of 2k bytes. Building
+ * runs a ParallelBfs from each landmark; the index can be written to a file
+ * and read back for the same graph. A LandmarkIndex is read-only once built,
+ * so many threads can query one.
+ *
+ */
+public class LandmarkIndex {
+
+	/**
+	 * Stored distance of people a landmark doesn't reach
+	 */
+	private static final short UNREACHED = -1;
+
+	private static final int MAGIC = 0x4c4d524b; // "LMRK"
+	private static final int VERSION = 1;
+
+	private final CsrGraph g;
+
+	/**
+	 * Numbers of the landmarks, most friends first
+	 */
+	private final int[] landmarks;
+
+	/**
+	 * dist[v*k + i] is the number of hops from landmark i to v, UNREACHED if
+	 * none
+	 */
+	private final short[] dist;
+
+	private final int k;
+
+	/**
+	 * Builds an index over a graph.
+	 *
+	 * @param g Graph to index
+	 * @param k Number of landmarks (fewer if the graph has fewer people)
+	 * @throws IllegalArgumentException If k is less than 1, or some chain from a
+	 *         landmark is longer than Short.MAX_VALUE
+	 */
+	public LandmarkIndex(CsrGraph g, int k) {
+		if (k < 1) {
+			throw new IllegalArgumentException("k must be at least 1");
+		}
+		this.g = g;
+		landmarks = mostFriends(g, Math.min(k, g.size()));
+		this.k = landmarks.length;
+		final int n = g.size();
+		if ((long)n * this.k > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many landmarks for " + n + " people");
+		}
+		dist = new short[n * this.k];
+		ParallelBfs bfs = new ParallelBfs(g);
+		for (int i=0; i < this.k; i++) {
+			final int[] d = bfs.distancesFrom(landmarks[i]);
+			final int landmark = i, stride = this.k;
+			IntStream.range(0, n).parallel().forEach(v -> {
+				if (d[v] > Short.MAX_VALUE) {
+					throw new IllegalArgumentException("chain from landmark longer than " + Short.MAX_VALUE);
+				}
+				dist[v * stride + landmark] = (short)d[v];
+			});
+		}
+	}
+
+	private LandmarkIndex(CsrGraph g, int[] landmarks, short[] dist) {
+		this.g = g;
+		this.landmarks = landmarks;
+		this.dist = dist;
+		k = landmarks.length;
+	}
+
+	/**
+	 * Returns the numbers of the k people with the most friends, most first
+	 * (ties to the lower number).
+	 */
+	private static int[] mostFriends(CsrGraph g, int k) {
+		int[] top = new int[k];
+		int count = 0;
+		for (int v=0; v < g.size(); v++) {
+			int degree = g.degree(v);
+			if (count == k && degree <= g.degree(top[k-1])) {
+				continue;
+			}
+			// insert into the sorted top list, dropping its last if full
+			int i = count < k ? count++ : k - 1;
+			while (i > 0 && g.degree(top[i-1]) < degree) {
+				top[i] = top[i-1];
+				i--;
+			}
+			top[i] = v;
+		}
+		return top;
+	}
+
+	/**
+	 * Returns a lower bound on the number of hops between two people.
+	 *
+	 * @param a Number of person
+	 * @param b Number of person
+	 * @return Lower bound; Integer.MAX_VALUE if some landmark reaches one of
+	 *         them but not the other, so they are not connected
+	 */
+	public int lowerBound(int a, int b) {
+		int best = 0;
+		for (int i=0, pa=a*k, pb=b*k; i < k; i++, pa++, pb++) {
+			int da = dist[pa], db = dist[pb];
+			if ((da == UNREACHED) != (db == UNREACHED)) {
+				return Integer.MAX_VALUE;
+			}
+			best = Math.max(best, Math.abs(da - db));
+		}
+		return best;
+	}
+
+	/**
+	 * Returns an upper bound on the number of hops between two people: the
+	 * length of the shortest chain between them through a landmark.
+	 *
+	 * @param a Number of person
+	 * @param b Number of person
+	 * @return Upper bound; Integer.MAX_VALUE if no landmark reaches them
+	 */
+	public int upperBound(int a, int b) {
+		int i = bestLandmark(a, b);
+		return i < 0 ? Integer.MAX_VALUE : dist[a*k + i] + dist[b*k + i];
+	}
+
+	/**
+	 * Returns the landmark (as an index into landmarks) on the shortest chain
+	 * through a landmark between two people, -1 if no landmark reaches them.
+	 */
+	private int bestLandmark(int a, int b) {
+		int best = -1, length = Integer.MAX_VALUE;
+		for (int i=0, pa=a*k, pb=b*k; i < k; i++, pa++, pb++) {
+			int da = dist[pa], db = dist[pb];
+			if (da != UNREACHED && db != UNREACHED && da + db < length) {
+				best = i;
+				length = da + db;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds a chain between two people through the landmark giving the upper
+	 * bound, walking down its distances from each end. If the two walks meet
+	 * before the landmark, the chain is cut short there.
+	 *
+	 * @param a Number of person at the start of the chain
+	 * @param b Number of person at the end of the chain
+	 * @return Numbers of the people on the chain, from a to b, at most
+	 *         upperBound(a, b) hops long; null if no landmark reaches them
+	 */
+	public int[] approximateChain(int a, int b) {
+		int i = bestLandmark(a, b);
+		if (i < 0) {
+			return null;
+		}
+		int da = dist[a*k + i], db = dist[b*k + i];
+		int[] chain = new int[da + db + 1];
+		chain[0] = a;
+		for (int h=1; h <= da; h++) {
+			chain[h] = closer(chain[h-1], i);
+		}
+		chain[da + db] = b;
+		for (int h=da+db-1; h > da; h--) {
+			chain[h] = closer(chain[h+1], i);
+		}
+		// the walks may meet before the landmark, at the same distance d from
+		// it: at chain[da-d] and chain[da+d]; cut at the farthest such meeting
+		for (int d=Math.min(da, db); d > 0; d--) {
+			if (chain[da-d] == chain[da+d]) {
+				int[] cut = new int[chain.length - 2*d];
+				System.arraycopy(chain, 0, cut, 0, da - d + 1);
+				System.arraycopy(chain, da + d + 1, cut, da - d + 1, db - d);
+				return cut;
+			}
+		}
+		return chain;
+	}
+
+	/**
+	 * Returns the first friend of v one hop closer to landmark i.
+	 */
+	private int closer(int v, int i) {
+		int d = dist[v*k + i];
+		for (int e=g.offsets.get(v); e < g.offsets.get(v+1); e++) {
+			int w = g.targets.get(e);
+			if (dist[w*k + i] == d - 1) {
+				return w;
+			}
+		}
+		throw new IllegalStateException("landmark distances don't match the graph");
+	}
+
+	/**
+	 * Finds a chain of people from p1 to p2 through a landmark, in O(k) plus the
+	 * length of the chain.
+	 *
+	 * @param p1 Person with whom the chain originates
+	 * @param p2 Person at whom the chain terminates
+	 * @return A chain from p1 to p2, not always a shortest one. Null if there is
+	 *         no such person, p1 is p2, or no landmark reaches them
+	 */
+	public ArrayList<String> approximateChain(String p1, String p2) {
+		if (p1.equals(p2)) {
+			return null;
+		}
+		int first = g.indexOf(p1), last = g.indexOf(p2);
+		if (first < 0 || last < 0) {
+			return null;
+		}
+		return names(approximateChain(first, last));
+	}
+
+	/**
+	 * Finds the shortest chain of people from p1 to p2. If the upper and lower
+	 * bounds meet, the chain through a landmark is a shortest one, and is
+	 * returned; if the bounds show the two are not connected, no chain is.
+	 * Only otherwise is there an exact search. The bounds take O(k) for k
+	 * landmarks, so the landmark chain is only walked when it will be used.
+	 *
+	 * @param p1 Person with whom the chain originates
+	 * @param p2 Person at whom the chain terminates
+	 * @param exact Service for exact searches, on the same graph
+	 * @return The shortest chain from p1 to p2, as Friends.shortestChain returns
+	 *         it. Null if there is no path from p1 to p2
+	 */
+	public ArrayList<String> shortestChain(String p1, String p2, ChainService exact) {
+		if (p1.equals(p2)) {
+			return null;
+		}
+		int first = g.indexOf(p1), last = g.indexOf(p2);
+		if (first < 0 || last < 0) {
+			return null;
+		}
+		int lower = lowerBound(first, last);
+		if (lower == Integer.MAX_VALUE) {
+			return null;
+		}
+		if (upperBound(first, last) == lower) {
+			// no chain is shorter than lower, and the landmark's is no longer
+			return names(approximateChain(first, last));
+		}
+		return exact.shortestChain(p1, p2);
+	}
+
+	private ArrayList<String> names(int[] chain) {
+		if (chain == null) {
+			return null;
+		}
+		ArrayList<String> list = new ArrayList<String>(chain.length);
+		for (int v : chain) {
+			list.add(g.name(v));
+		}
+		return list;
+	}
+
+	/**
+	 * Returns the landmarks.
+	 *
+	 * @return Numbers of the landmarks, most friends first
+	 */
+	public int[] landmarks() {
+		return landmarks.clone();
+	}
+
+	/**
+	 * Returns the graph indexed.
+	 *
+	 * @return Graph
+	 */
+	public CsrGraph graph() {
+		return g;
+	}
+
+	/**
+	 * Writes the index to a file: a header of MAGIC, VERSION, number of people,
+	 * number of friendships and k, then the landmarks, then the distances as
+	 * stored, all big-endian.
+	 *
+	 * @param file File to write
+	 * @throws IOException If the file can't be written
+	 */
+	public void write(File file)
+	throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(g.size());
+			out.writeInt(g.edgeCount());
+			out.writeInt(k);
+			for (int landmark : landmarks) {
+				out.writeInt(landmark);
+			}
+			for (short d : dist) {
+				out.writeShort(d);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Reads an index written by write.
+	 *
+	 * @param file File to read
+	 * @param g Graph the index was built for
+	 * @return Index
+	 * @throws IOException If the file can't be read, is not a landmark index, or
+	 *         is for a graph of another size
+	 */
+	public static LandmarkIndex read(File file, CsrGraph g)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(5 * 4);
+			readFully(channel, header);
+			if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+				throw new IOException("not a landmark index");
+			}
+			int k = header.getInt(16);
+			if (header.getInt(8) != g.size() || header.getInt(12) != g.edgeCount() || k < 1
+					|| (long)g.size() * k > Integer.MAX_VALUE) {
+				throw new IOException("landmark index is for another graph");
+			}
+			ByteBuffer block = ByteBuffer.allocate(4 * k);
+			readFully(channel, block);
+			int[] landmarks = new int[k];
+			block.asIntBuffer().get(landmarks);
+			short[] dist = new short[g.size() * k];
+			block = ByteBuffer.allocate(1 << 20);
+			for (int pos=0; pos < dist.length; ) {
+				int count = Math.min(dist.length - pos, block.capacity() / 2);
+				block.clear().limit(2 * count);
+				readFully(channel, block);
+				block.asShortBuffer().get(dist, pos, count);
+				pos += count;
+			}
+			return new LandmarkIndex(g, landmarks, dist);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Reads from the channel's position until the buffer is full, and flips it.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buf)
+	throws IOException {
+		while (buf.hasRemaining()) {
+			if (channel.read(buf) < 0) {
+				throw new EOFException("landmark index is truncated");
+			}
+		}
+		buf.flip();
+	}
+}
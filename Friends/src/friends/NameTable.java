@@ -0,0 +1,243 @@
+package friends;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class numbers names 0, 1, 2, ... in the order they are added, and finds
+ * the number of a name, without a String or an Integer per name.
+ *
+ * Names are kept as UTF-8 bytes back to back in one buffer, and found through
+ * an open-addressing hash table of numbers. Lookups can come straight from
+ * bytes in a read buffer. Once all names are added, any number of threads can
+ * look names up at the same time.
+ *
+ * The buffers are heap buffers while names are added, or map a file for a
+ * table opened from a GraphSnapshot (which can't be added to).
+ *
+ */
+final class NameTable {
+
+	/**
+	 * Names, back to back
+	 */
+	ByteBuffer bytes;
+
+	/**
+	 * Name i is bytes[start[i]] .. bytes[start[i+1]-1]
+	 */
+	IntBuffer start;
+
+	/**
+	 * Hash code of each name
+	 */
+	IntBuffer hash;
+
+	/**
+	 * Hash table: name number + 1, 0 for an empty slot; size is a power of 2
+	 */
+	IntBuffer table;
+
+	int count;
+
+	/**
+	 * Initializes an empty table.
+	 *
+	 * @param names Expected number of names
+	 * @param nameBytes Expected total length of names, in bytes
+	 */
+	NameTable(int names, int nameBytes) {
+		names = Math.max(names, 4);
+		bytes = ByteBuffer.allocate(Math.max(nameBytes, 16));
+		start = IntBuffer.allocate(names + 1);
+		hash = IntBuffer.allocate(names);
+		table = IntBuffer.allocate(Integer.highestOneBit(names * 2 - 1) << 1);
+	}
+
+	/**
+	 * Wraps buffers written by a table before, as by GraphSnapshot.
+	 */
+	NameTable(ByteBuffer bytes, IntBuffer start, IntBuffer hash, IntBuffer table, int count) {
+		this.bytes = bytes;
+		this.start = start;
+		this.hash = hash;
+		this.table = table;
+		this.count = count;
+	}
+
+	/**
+	 * Adds a name, and gives it the next number. If the name was already added,
+	 * lookups find the new number from now on.
+	 *
+	 * @param b Buffer holding the name in UTF-8
+	 * @param off Offset of name in buffer
+	 * @param len Length of name in bytes
+	 * @return Number of the name
+	 */
+	int add(byte[] b, int off, int len) {
+		if (count + 1 == start.capacity()) {
+			start = grow(start, start.capacity() * 2);
+			hash = grow(hash, start.capacity() - 1);
+		}
+		int used = start.get(count);
+		if (used + len > bytes.capacity()) {
+			ByteBuffer bigger = ByteBuffer.allocate(Math.max(bytes.capacity() * 2, used + len));
+			bytes.clear();
+			bigger.put(bytes);
+			bytes = bigger;
+		}
+		for (int i=0; i < len; i++) {
+			bytes.put(used + i, b[off + i]);
+		}
+		int id = count++;
+		start.put(count, used + len);
+		hash.put(id, hash(b, off, len));
+		if (count * 2 > table.capacity()) {
+			rehash(table.capacity() * 2);
+		}
+		int mask = table.capacity() - 1;
+		for (int i=hash.get(id) & mask; ; i=(i+1) & mask) {
+			if (table.get(i) == 0 || equals(table.get(i) - 1, b, off, len)) {
+				table.put(i, id + 1);
+				return id;
+			}
+		}
+	}
+
+	/**
+	 * Adds a name, and gives it the next number.
+	 *
+	 * @param name Name
+	 * @return Number of the name
+	 */
+	int add(String name) {
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		return add(b, 0, b.length);
+	}
+
+	/**
+	 * Finds the number of a name.
+	 *
+	 * @param b Buffer holding the name in UTF-8
+	 * @param off Offset of name in buffer
+	 * @param len Length of name in bytes
+	 * @return Number of the name, -1 if it was never added
+	 */
+	int find(byte[] b, int off, int len) {
+		int mask = table.capacity() - 1;
+		for (int i=hash(b, off, len) & mask; table.get(i) != 0; i=(i+1) & mask) {
+			if (equals(table.get(i) - 1, b, off, len)) {
+				return table.get(i) - 1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the number of a name.
+	 *
+	 * @param name Name
+	 * @return Number of the name, -1 if it was never added
+	 */
+	int find(String name) {
+		byte[] b = name.getBytes(StandardCharsets.UTF_8);
+		return find(b, 0, b.length);
+	}
+
+	/**
+	 * Returns a name.
+	 *
+	 * @param id Number of the name
+	 * @return Name
+	 */
+	String get(int id) {
+		int from = start.get(id);
+		byte[] b = new byte[start.get(id+1) - from];
+		for (int i=0; i < b.length; i++) {
+			b[i] = bytes.get(from + i);
+		}
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Returns number of names.
+	 *
+	 * @return Number of names
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * Trims the buffers to the names added.
+	 */
+	void trim() {
+		int used = start.get(count);
+		ByteBuffer b = ByteBuffer.allocate(used);
+		ByteBuffer dup = bytes.duplicate();
+		dup.clear().limit(used);
+		b.put(dup).clear();
+		bytes = b;
+		start = grow(start, count + 1);
+		hash = grow(hash, count);
+	}
+
+	private boolean equals(int id, byte[] b, int off, int len) {
+		int s = start.get(id);
+		if (start.get(id+1) - s != len) {
+			return false;
+		}
+		for (int i=0; i < len; i++) {
+			if (bytes.get(s+i) != b[off+i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean equals(int id, int other) {
+		int s = start.get(id), t = start.get(other), len = start.get(id+1) - s;
+		if (start.get(other+1) - t != len) {
+			return false;
+		}
+		for (int i=0; i < len; i++) {
+			if (bytes.get(s+i) != bytes.get(t+i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash(int size) {
+		table = IntBuffer.allocate(size);
+		int mask = size - 1;
+		for (int id=0; id < count; id++) {
+			int i = hash.get(id) & mask;
+			while (table.get(i) != 0 && !equals(table.get(i) - 1, id)) {
+				i = (i + 1) & mask;
+			}
+			table.put(i, id + 1);
+		}
+	}
+
+	/**
+	 * Copies a buffer into a new heap buffer of another capacity.
+	 */
+	private static IntBuffer grow(IntBuffer buf, int capacity) {
+		IntBuffer bigger = IntBuffer.allocate(capacity);
+		IntBuffer dup = buf.duplicate();
+		dup.clear().limit(Math.min(buf.capacity(), capacity));
+		bigger.put(dup).clear();
+		return bigger;
+	}
+
+	private static int hash(byte[] b, int off, int len) {
+		int h = 0;
+		for (int i=0; i < len; i++) {
+			h = 31 * h + b[off+i];
+		}
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,274 @@
+package friends;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class runs breadth first searches over the whole of a CsrGraph, in
+ * parallel, for analytics that need hop counts from a source to everyone.
+ *
+ * Each level is processed by fork-join tasks over ranges of people. Frontiers
+ * and the visited set are bitmaps, one bit per person. A level is expanded in
+ * one of two directions (Beamer's direction-optimizing search):
+ * - top down: every frontier person claims their unvisited friends, with a
+ *   compare-and-set on the visited bitmap. Best while the frontier is small.
+ * - bottom up: every unvisited person looks through their friends for one in
+ *   the frontier, and stops at the first. Best when the frontier is large,
+ *   since most friends checked would already be visited top down.
+ * The search goes bottom up once the frontier's friend lists hold more than
+ * 1/ALPHA of the edges of unvisited people, and back top down once the
+ * frontier shrinks below 1/BETA of the people.
+ *
+ * A ParallelBfs holds no state between searches, so many threads can use one.
+ *
+ */
+public class ParallelBfs {
+
+	/**
+	 * Switch to bottom up when frontier edges exceed unvisited edges / ALPHA
+	 */
+	private static final int ALPHA = 14;
+
+	/**
+	 * Switch back to top down when the frontier has fewer than n / BETA people
+	 */
+	private static final int BETA = 24;
+
+	/**
+	 * Number of bitmap words (64 people each) below which a task does its range
+	 * itself instead of splitting it
+	 */
+	private static final int WORDS_PER_TASK = 64;
+
+	private final CsrGraph g;
+	private final ForkJoinPool pool;
+
+	/**
+	 * Sets up searches on the common fork-join pool.
+	 *
+	 * @param g Graph to search
+	 */
+	public ParallelBfs(CsrGraph g) {
+		this(g, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Sets up searches on a given pool.
+	 *
+	 * @param g Graph to search
+	 * @param pool Pool to run level tasks in
+	 */
+	public ParallelBfs(CsrGraph g, ForkJoinPool pool) {
+		this.g = g;
+		this.pool = pool;
+	}
+
+	/**
+	 * State of one search
+	 */
+	private final class Search {
+		final int source;
+		final int n = g.size();
+		final int words = (n + 63) >>> 6;
+		final int[] dist = new int[n];
+		final int[] parent = new int[n];
+		final AtomicLongArray visited = new AtomicLongArray(words);
+		AtomicLongArray frontier = new AtomicLongArray(words);
+		AtomicLongArray next = new AtomicLongArray(words);
+
+		Search(int source) {
+			this.source = source;
+			Arrays.fill(dist, -1);
+			dist[source] = 0;
+			parent[source] = -1;
+			visited.set(source >>> 6, 1L << source);
+			frontier.set(source >>> 6, 1L << source);
+		}
+
+		/**
+		 * Runs the search level by level, until there is no frontier or the
+		 * target is reached.
+		 *
+		 * @param target Person to stop at, -1 to reach everyone
+		 */
+		void run(int target) {
+			long frontierCount = 1, frontierEdges = g.degree(source), unvisitedEdges = g.targets.limit();
+			boolean bottomUp = false;
+			for (int level=0; frontierCount > 0; level++) {
+				if (target >= 0 && dist[target] >= 0) {
+					return;
+				}
+				unvisitedEdges -= frontierEdges;
+				if (!bottomUp && frontierEdges > unvisitedEdges / ALPHA) {
+					bottomUp = true;
+				} else if (bottomUp && frontierCount < n / BETA) {
+					bottomUp = false;
+				}
+				Step step = new Step(this, level, bottomUp, 0, words);
+				pool.invoke(step);
+				frontierCount = step.count;
+				frontierEdges = step.edges;
+				AtomicLongArray done = frontier;
+				frontier = next;
+				next = done;
+				for (int i=0; i < words; i++) {
+					next.lazySet(i, 0);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Expands one level over the people in bitmap words lo..hi-1.
+	 */
+	private final class Step extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final Search s;
+		final int level, lo, hi;
+		final boolean bottomUp;
+
+		/**
+		 * Number of people in the next frontier, and the size of their friend
+		 * lists, found by this task
+		 */
+		long count, edges;
+
+		Step(Search s, int level, boolean bottomUp, int lo, int hi) {
+			this.s = s;
+			this.level = level;
+			this.bottomUp = bottomUp;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute() {
+			if (hi - lo > WORDS_PER_TASK) {
+				int mid = (lo + hi) >>> 1;
+				Step left = new Step(s, level, bottomUp, lo, mid);
+				Step right = new Step(s, level, bottomUp, mid, hi);
+				invokeAll(left, right);
+				count = left.count + right.count;
+				edges = left.edges + right.edges;
+			} else if (bottomUp) {
+				bottomUp();
+			} else {
+				topDown();
+			}
+		}
+
+		private void topDown() {
+			IntBuffer offsets = g.offsets, targets = g.targets;
+			for (int i=lo; i < hi; i++) {
+				for (long word=s.frontier.get(i); word != 0; word &= word - 1) {
+					int v = (i << 6) + Long.numberOfTrailingZeros(word);
+					for (int e=offsets.get(v); e < offsets.get(v+1); e++) {
+						int w = targets.get(e);
+						if (claim(s.visited, w)) {
+							s.dist[w] = level + 1;
+							s.parent[w] = v;
+							claim(s.next, w);
+							count++;
+							edges += offsets.get(w+1) - offsets.get(w);
+						}
+					}
+				}
+			}
+		}
+
+		private void bottomUp() {
+			IntBuffer offsets = g.offsets, targets = g.targets;
+			for (int i=lo; i < hi; i++) {
+				long unvisited = ~s.visited.get(i);
+				if (i == s.words - 1 && (s.n & 63) != 0) {
+					unvisited &= (1L << (s.n & 63)) - 1;
+				}
+				long found = 0;
+				for (; unvisited != 0; unvisited &= unvisited - 1) {
+					int v = (i << 6) + Long.numberOfTrailingZeros(unvisited);
+					for (int e=offsets.get(v); e < offsets.get(v+1); e++) {
+						int w = targets.get(e);
+						if ((s.frontier.get(w >>> 6) & (1L << w)) != 0) {
+							s.dist[v] = level + 1;
+							s.parent[v] = w;
+							found |= 1L << v;
+							count++;
+							edges += offsets.get(v+1) - offsets.get(v);
+							break;
+						}
+					}
+				}
+				// this task alone owns word i of the bitmaps here
+				if (found != 0) {
+					s.visited.set(i, s.visited.get(i) | found);
+					s.next.set(i, found);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Atomically sets a bit, if it isn't set.
+	 *
+	 * @return True if this call set it
+	 */
+	private static boolean claim(AtomicLongArray bits, int v) {
+		int i = v >>> 6;
+		long mask = 1L << v;
+		for (;;) {
+			long word = bits.get(i);
+			if ((word & mask) != 0) {
+				return false;
+			}
+			if (bits.compareAndSet(i, word, word | mask)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of hops from a person to everyone.
+	 *
+	 * @param source Number of person to start from
+	 * @return Hop counts by person number, -1 for people not connected to source
+	 */
+	public int[] distancesFrom(int source) {
+		Search s = new Search(source);
+		s.run(-1);
+		return s.dist;
+	}
+
+	/**
+	 * Finds a shortest chain between two people, searching from the end of the
+	 * chain until a level reaches its start.
+	 *
+	 * @param from Number of person at the start of the chain
+	 * @param to Number of person at the end of the chain
+	 * @return Numbers of the people on the chain, from first to last, or null if
+	 *         they are not connected
+	 */
+	public int[] chain(int from, int to) {
+		Search s = new Search(to);
+		s.run(from);
+		if (s.dist[from] < 0) {
+			return null;
+		}
+		int[] chain = new int[s.dist[from] + 1];
+		for (int i=0, v=from; i < chain.length; i++, v=s.parent[v]) {
+			chain[i] = v;
+		}
+		return chain;
+	}
+
+	/**
+	 * Returns the graph searched.
+	 *
+	 * @return Graph
+	 */
+	public CsrGraph graph() {
+		return g;
+	}
+}
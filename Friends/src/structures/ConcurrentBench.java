@@ -0,0 +1,312 @@
+package structures;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Command line stress tests and throughput benchmarks for LockFreeQueue and
+ * WorkStealingDeque.
+ *
+ * The stress tests race threads on small structures many times over, and
+ * check what every thread saw: that each item comes out exactly once, and
+ * that items from one producer come out of the queue in the order they went
+ * in. The benchmarks compare with ConcurrentLinkedQueue, and with ArrayDeque
+ * on one thread.
+ *
+ * Usage: java structures.ConcurrentBench stress [rounds] [threads]
+ *        java structures.ConcurrentBench throughput [items] [threads]
+ *
+ */
+public class ConcurrentBench {
+
+	/**
+	 * Time after which a stress round that hasn't seen every item counts as
+	 * failed, an item having been lost
+	 */
+	private static final long TIMEOUT = 10000000000L;
+
+	public static void main(String[] args)
+	throws InterruptedException {
+		String mode = args.length > 0 ? args[0] : "stress";
+		if ("stress".equals(mode)) {
+			int rounds = intArg(args, 1, 1000), threads = intArg(args, 2, 4);
+			System.out.println("queue: " + (stressQueue(rounds, threads) ? "ok" : "FAILED"));
+			System.out.println("deque: " + (stressDeque(rounds, threads) ? "ok" : "FAILED"));
+		} else if ("throughput".equals(mode)) {
+			throughput(intArg(args, 1, 2000000), intArg(args, 2, 4));
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+
+	private static int intArg(String[] args, int i, int dflt) {
+		return args.length > i ? Integer.parseInt(args[i]) : dflt;
+	}
+
+	/**
+	 * Starts threads, lets them go at once, and waits for them all.
+	 */
+	private static void race(Runnable... tasks)
+	throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[tasks.length];
+		for (int i=0; i < tasks.length; i++) {
+			final Runnable task = tasks[i];
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				task.run();
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * Races producers and consumers on a queue, round after round. Items are
+	 * producer * perProducer + sequence number.
+	 */
+	private static boolean stressQueue(int rounds, int threads)
+	throws InterruptedException {
+		final int producers = Math.max(threads / 2, 1), consumers = Math.max(threads - producers, 1);
+		final int perProducer = 10000;
+		final AtomicBoolean ok = new AtomicBoolean(true);
+		for (int round=0; round < rounds && ok.get(); round++) {
+			final LockFreeQueue<Integer> queue = new LockFreeQueue<Integer>();
+			final AtomicIntegerArray taken = new AtomicIntegerArray(producers * perProducer);
+			final AtomicInteger left = new AtomicInteger(producers * perProducer);
+			Runnable[] tasks = new Runnable[producers + consumers];
+			for (int p=0; p < producers; p++) {
+				final int first = p * perProducer;
+				tasks[p] = () -> {
+					for (int i=0; i < perProducer; i++) {
+						queue.enqueue(first + i);
+					}
+				};
+			}
+			for (int c=0; c < consumers; c++) {
+				tasks[producers + c] = () -> {
+					// last item seen from each producer, by this consumer
+					int[] last = new int[producers];
+					Arrays.fill(last, -1);
+					long deadline = System.nanoTime() + TIMEOUT;
+					while (left.get() > 0 && System.nanoTime() < deadline) {
+						Integer item = queue.poll();
+						if (item == null) {
+							Thread.yield();
+							continue;
+						}
+						int p = item / perProducer;
+						if (taken.getAndIncrement(item) != 0 || item <= last[p]) {
+							ok.set(false);
+						}
+						last[p] = item;
+						left.decrementAndGet();
+					}
+				};
+			}
+			race(tasks);
+			if (left.get() != 0 || !queue.isEmpty() || queue.size() != 0) {
+				ok.set(false);
+			}
+		}
+		return ok.get();
+	}
+
+	/**
+	 * Races an owner pushing and popping against thieves, round after round,
+	 * on a deque that starts small, so that it grows under the thieves and
+	 * often holds just the one item that both ends want.
+	 */
+	private static boolean stressDeque(int rounds, int threads)
+	throws InterruptedException {
+		final int items = 2000, thieves = Math.max(threads - 1, 1);
+		final AtomicBoolean ok = new AtomicBoolean(true);
+		for (int round=0; round < rounds && ok.get(); round++) {
+			final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>(2);
+			final AtomicIntegerArray taken = new AtomicIntegerArray(items);
+			final AtomicInteger left = new AtomicInteger(items);
+			final int seed = round;
+			Runnable[] tasks = new Runnable[1 + thieves];
+			tasks[0] = () -> {
+				Random random = new Random(seed);
+				for (int i=0; i < items; i++) {
+					deque.push(i);
+					// pop now and then, sometimes more than was pushed since
+					for (int k=random.nextInt(4) - 1; k > 0; k--) {
+						take(deque.pop(), taken, left, ok);
+					}
+				}
+				long deadline = System.nanoTime() + TIMEOUT;
+				while (left.get() > 0 && System.nanoTime() < deadline) {
+					Integer item = deque.pop();
+					if (item == null) {
+						Thread.yield();
+					} else {
+						take(item, taken, left, ok);
+					}
+				}
+			};
+			for (int t=1; t <= thieves; t++) {
+				tasks[t] = () -> {
+					long deadline = System.nanoTime() + TIMEOUT;
+					while (left.get() > 0 && System.nanoTime() < deadline) {
+						Integer item = deque.steal();
+						if (item == null) {
+							Thread.yield();
+						} else {
+							take(item, taken, left, ok);
+						}
+					}
+				};
+			}
+			race(tasks);
+			if (left.get() != 0 || !deque.isEmpty() || deque.pop() != null || deque.steal() != null) {
+				ok.set(false);
+			}
+		}
+		return ok.get();
+	}
+
+	private static void take(Integer item, AtomicIntegerArray taken, AtomicInteger left, AtomicBoolean ok) {
+		if (item == null) {
+			return;
+		}
+		if (taken.getAndIncrement(item) != 0) {
+			ok.set(false);
+		}
+		left.decrementAndGet();
+	}
+
+	/**
+	 * Times moving items through each structure, on one thread and across
+	 * threads.
+	 */
+	private static void throughput(final int items, final int threads)
+	throws InterruptedException {
+		final Integer[] boxes = new Integer[items];
+		for (int i=0; i < items; i++) {
+			boxes[i] = i;
+		}
+		System.out.printf("%d items, %d threads, %d processors%n", items, threads,
+				Runtime.getRuntime().availableProcessors());
+		for (int round=0; round < 3; round++) {
+			// one thread: fill, then empty
+			LockFreeQueue<Integer> lfq = new LockFreeQueue<Integer>();
+			long start = System.nanoTime();
+			for (Integer box : boxes) {
+				lfq.enqueue(box);
+			}
+			while (lfq.poll() != null) {
+				// drain
+			}
+			long lockFree = System.nanoTime() - start;
+			ConcurrentLinkedQueue<Integer> clq = new ConcurrentLinkedQueue<Integer>();
+			start = System.nanoTime();
+			for (Integer box : boxes) {
+				clq.offer(box);
+			}
+			while (clq.poll() != null) {
+				// drain
+			}
+			long concurrent = System.nanoTime() - start;
+			ArrayDeque<Integer> ad = new ArrayDeque<Integer>();
+			start = System.nanoTime();
+			for (Integer box : boxes) {
+				ad.addLast(box);
+			}
+			while (ad.pollFirst() != null) {
+				// drain
+			}
+			long arrayFifo = System.nanoTime() - start;
+			WorkStealingDeque<Integer> wsd = new WorkStealingDeque<Integer>();
+			start = System.nanoTime();
+			for (Integer box : boxes) {
+				wsd.push(box);
+			}
+			while (wsd.pop() != null) {
+				// drain
+			}
+			long deque = System.nanoTime() - start;
+			start = System.nanoTime();
+			for (Integer box : boxes) {
+				ad.push(box);
+			}
+			while (ad.pollFirst() != null) {
+				// drain
+			}
+			long arrayLifo = System.nanoTime() - start;
+			System.out.printf("one thread, Mops/s: LockFreeQueue %6.1f, ConcurrentLinkedQueue %6.1f, ArrayDeque fifo %6.1f | WorkStealingDeque %6.1f, ArrayDeque lifo %6.1f%n",
+					mops(items, lockFree), mops(items, concurrent), mops(items, arrayFifo),
+					mops(items, deque), mops(items, arrayLifo));
+
+			// producers and consumers
+			int producers = Math.max(threads / 2, 1), consumers = Math.max(threads - producers, 1);
+			final LockFreeQueue<Integer> sharedLfq = new LockFreeQueue<Integer>();
+			lockFree = pipe(boxes, producers, consumers, sharedLfq::enqueue, sharedLfq::poll);
+			final ConcurrentLinkedQueue<Integer> sharedClq = new ConcurrentLinkedQueue<Integer>();
+			concurrent = pipe(boxes, producers, consumers, sharedClq::offer, sharedClq::poll);
+			// only the owner can push: one producer, the rest thieves
+			final WorkStealingDeque<Integer> sharedWsd = new WorkStealingDeque<Integer>();
+			deque = pipe(boxes, 1, Math.max(threads - 1, 1), sharedWsd::push, sharedWsd::steal);
+			System.out.printf("%d to %d threads, Mops/s: LockFreeQueue %6.1f, ConcurrentLinkedQueue %6.1f | WorkStealingDeque, 1 owner to %d thieves %6.1f%n",
+					producers, consumers, mops(items, lockFree), mops(items, concurrent),
+					Math.max(threads - 1, 1), mops(items, deque));
+		}
+	}
+
+	private interface Put {
+		void put(Integer item);
+	}
+
+	private interface Take {
+		Integer take();
+	}
+
+	/**
+	 * Moves all items from producer threads to consumer threads.
+	 */
+	private static long pipe(final Integer[] boxes, final int producers, int consumers, final Put put, final Take take)
+	throws InterruptedException {
+		final AtomicInteger left = new AtomicInteger(boxes.length);
+		Runnable[] tasks = new Runnable[producers + consumers];
+		for (int p=0; p < producers; p++) {
+			final int first = p;
+			tasks[p] = () -> {
+				for (int i=first; i < boxes.length; i+=producers) {
+					put.put(boxes[i]);
+				}
+			};
+		}
+		for (int c=0; c < consumers; c++) {
+			tasks[producers + c] = () -> {
+				while (left.get() > 0) {
+					if (take.take() != null) {
+						left.decrementAndGet();
+					} else {
+						Thread.yield();
+					}
+				}
+			};
+		}
+		long start = System.nanoTime();
+		race(tasks);
+		return System.nanoTime() - start;
+	}
+
+	private static double mops(int items, long nanos) {
+		return items / (nanos / 1e3);
+	}
+}
@@ -0,0 +1,208 @@
+package structures;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A queue of ints, kept in a circular array that doubles when full, so
+ * enqueueing and dequeueing never allocate per item and never box.
+ *
+ * The array size is a power of 2, so positions wrap with a mask.
+ */
+public class IntQueue {
+
+	/**
+	 * Largest array size, a power of 2
+	 */
+	private static final int MAX_CAPACITY = 1 << 30;
+
+	/**
+	 * Items, front first, from items[head] around to items[(head+size-1) & mask]
+	 */
+	private int[] items;
+
+	private int mask;
+
+	/**
+	 * Position of front of queue
+	 */
+	private int head;
+
+	/**
+	 * Number of items in the queue
+	 */
+	private int size;
+
+	/**
+	 * Initializes queue to empty.
+	 */
+	public IntQueue() {
+		this(16);
+	}
+
+	/**
+	 * Initializes queue to empty, with room for some items before it grows.
+	 *
+	 * @param capacity Number of items to make room for
+	 * @throws IllegalArgumentException If capacity is over 2^30, the largest
+	 *         power of 2 an array can have
+	 */
+	public IntQueue(int capacity) {
+		if (capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity too big: " + capacity);
+		}
+		items = new int[capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+		mask = items.length - 1;
+	}
+
+	/**
+	 * Adds an item to the end of the queue
+	 *
+	 * @param item Item to be enqueued
+	 */
+	public void enqueue(int item) {
+		if (size == items.length) {
+			grow(size + 1);
+		}
+		items[(head + size++) & mask] = item;
+	}
+
+	/**
+	 * Adds items to the end of the queue, in order.
+	 *
+	 * @param src Array holding the items
+	 * @param off Offset of first item in array
+	 * @param len Number of items
+	 */
+	public void enqueueAll(int[] src, int off, int len) {
+		if (size + len > items.length) {
+			grow(size + len);
+		}
+		int tail = (head + size) & mask;
+		int first = Math.min(len, items.length - tail);
+		System.arraycopy(src, off, items, tail, first);
+		System.arraycopy(src, off + first, items, 0, len - first);
+		size += len;
+	}
+
+	/**
+	 * Deletes and returns the front of the queue
+	 *
+	 * @return Item at the front of the queue
+	 * @throws NoSuchElementException If the queue is empty
+	 */
+	public int dequeue()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("queue is empty");
+		}
+		int item = items[head];
+		head = (head + 1) & mask;
+		size--;
+		return item;
+	}
+
+	/**
+	 * Deletes items from the front of the queue, into an array.
+	 *
+	 * @param dst Array to put the items in, front first
+	 * @param off Offset in array of first item
+	 * @param max Most items to delete
+	 * @return Number of items deleted: max, or fewer if the queue ran out
+	 */
+	public int dequeueAll(int[] dst, int off, int max) {
+		int len = Math.min(max, size);
+		int first = Math.min(len, items.length - head);
+		System.arraycopy(items, head, dst, off, first);
+		System.arraycopy(items, 0, dst, off + first, len - first);
+		head = (head + len) & mask;
+		size -= len;
+		return len;
+	}
+
+	/**
+	 * Returns the front of the queue, without deleting it.
+	 *
+	 * @return Item at the front of the queue
+	 * @throws NoSuchElementException If the queue is empty
+	 */
+	public int peek()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("queue is empty");
+		}
+		return items[head];
+	}
+
+	/**
+	 * Returns an item by position, without deleting it.
+	 *
+	 * @param i Position, 0 for the front and size()-1 for the end
+	 * @return Item at position i
+	 * @throws IndexOutOfBoundsException If there is no item at position i
+	 */
+	public int get(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("no item " + i + " in a queue of " + size);
+		}
+		return items[(head + i) & mask];
+	}
+
+	/**
+	 * Tells if queue is empty.
+	 *
+	 * @return True if queue is empty, false if not.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns number of items in queue.
+	 *
+	 * @return Number of items in queue.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the queue, in O(1); it keeps the room it had.
+	 */
+	public void clear() {
+		head = 0;
+		size = 0;
+	}
+
+	/**
+	 * Returns the items, front first.
+	 *
+	 * @return New array of the items
+	 */
+	public int[] toArray() {
+		int[] copy = new int[size];
+		int first = Math.min(size, items.length - head);
+		System.arraycopy(items, head, copy, 0, first);
+		System.arraycopy(items, 0, copy, first, size - first);
+		return copy;
+	}
+
+	/**
+	 * Moves the items to the front of a bigger array, of at least capacity.
+	 */
+	private void grow(int capacity) {
+		int length = items.length;
+		do {
+			length *= 2;
+		} while (length > 0 && length < capacity);
+		if (length <= 0) {
+			throw new IllegalStateException("queue too big");
+		}
+		int[] bigger = new int[length];
+		int first = Math.min(size, items.length - head);
+		System.arraycopy(items, head, bigger, 0, first);
+		System.arraycopy(items, 0, bigger, first, size - first);
+		items = bigger;
+		mask = length - 1;
+		head = 0;
+	}
+}
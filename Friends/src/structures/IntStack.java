@@ -0,0 +1,147 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A stack of ints, kept in an array that doubles when full, so pushing and
+ * popping never allocate per item and never box.
+ *
+ * Items can also be read by position from the bottom, as for the path of a
+ * depth first search, which is the stack itself.
+ */
+public class IntStack {
+
+	/**
+	 * Items, bottom first, in items[0..size-1]
+	 */
+	private int[] items;
+
+	/**
+	 * Number of items in the stack
+	 */
+	private int size;
+
+	/**
+	 * Initializes stack to empty.
+	 */
+	public IntStack() {
+		this(16);
+	}
+
+	/**
+	 * Initializes stack to empty, with room for some items before it grows.
+	 *
+	 * @param capacity Number of items to make room for
+	 */
+	public IntStack(int capacity) {
+		items = new int[Math.max(capacity, 1)];
+	}
+
+	/**
+	 * Pushes a new item on top of stack.
+	 *
+	 * @param item Item to push.
+	 */
+	public void push(int item) {
+		if (size == items.length) {
+			grow(size + 1);
+		}
+		items[size++] = item;
+	}
+
+	/**
+	 * Pushes items on the stack, in order, so the last ends up on top.
+	 *
+	 * @param src Array holding the items
+	 * @param off Offset of first item in array
+	 * @param len Number of items
+	 */
+	public void pushAll(int[] src, int off, int len) {
+		if (size + len > items.length) {
+			grow(size + len);
+		}
+		System.arraycopy(src, off, items, size, len);
+		size += len;
+	}
+
+	/**
+	 * Pops item at top of stack and returns it.
+	 *
+	 * @return Popped item.
+	 * @throws NoSuchElementException If stack is empty.
+	 */
+	public int pop()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("can't pop from an empty stack");
+		}
+		return items[--size];
+	}
+
+	/**
+	 * Returns item on top of stack, without popping it.
+	 *
+	 * @return Item at top of stack.
+	 * @throws NoSuchElementException If stack is empty.
+	 */
+	public int peek()
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("can't peek on an empty stack");
+		}
+		return items[size-1];
+	}
+
+	/**
+	 * Returns an item by position, without popping it.
+	 *
+	 * @param i Position, 0 for the bottom item and size()-1 for the top
+	 * @return Item at position i
+	 * @throws IndexOutOfBoundsException If there is no item at position i
+	 */
+	public int get(int i) {
+		if (i < 0 || i >= size) {
+			throw new IndexOutOfBoundsException("no item " + i + " in a stack of " + size);
+		}
+		return items[i];
+	}
+
+	/**
+	 * Tells if stack is empty.
+	 *
+	 * @return True if stack is empty, false if not.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns number of items in stack.
+	 *
+	 * @return Number of items in stack.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the stack, in O(1); it keeps the room it had.
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Returns the items, bottom first.
+	 *
+	 * @return New array of the items
+	 */
+	public int[] toArray() {
+		return Arrays.copyOf(items, size);
+	}
+
+	private void grow(int capacity) {
+		items = Arrays.copyOf(items, Math.max(capacity, items.length * 2));
+	}
+}
@@ -0,0 +1,149 @@
+package structures;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A queue safe for any number of threads enqueueing and dequeueing at once,
+ * without locks (Michael and Scott's algorithm).
+ *
+ * The queue is a linked list from a dummy node at the head to the tail. An
+ * item is enqueued by a compare-and-set of the last node's next link, then of
+ * the tail; a thread that finds the tail lagging behind moves it on before
+ * trying its own update, so no thread ever waits for another. An item is
+ * dequeued by a compare-and-set of the head to the next node, which becomes
+ * the dummy. The garbage collector makes reuse of nodes (and so the ABA
+ * problem) impossible.
+ *
+ * @param <T> Parameter type for items in the queue.
+ */
+public class LockFreeQueue<T> {
+
+	/**
+	 * Node used for queue's linked list
+	 *
+	 * @param <E> Parameter type for items in the queue
+	 */
+	static final class Node<E> {
+		volatile E item;
+		volatile Node<E> next;
+		Node(E item) {
+			this.item = item;
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Node,Node> NEXT =
+			AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+	/**
+	 * Dummy node before the front of the queue
+	 */
+	private final AtomicReference<Node<T>> head;
+
+	/**
+	 * Last node, or a node just before it
+	 */
+	private final AtomicReference<Node<T>> tail;
+
+	public LockFreeQueue() {
+		Node<T> dummy = new Node<T>(null);
+		head = new AtomicReference<Node<T>>(dummy);
+		tail = new AtomicReference<Node<T>>(dummy);
+	}
+
+	/**
+	 * Adds an item to the end of the queue
+	 *
+	 * @param item Item to be enqueued
+	 * @throws NullPointerException If the item is null
+	 */
+	public void enqueue(T item) {
+		if (item == null) {
+			throw new NullPointerException("can't enqueue null");
+		}
+		Node<T> node = new Node<T>(item);
+		for (;;) {
+			Node<T> last = tail.get();
+			Node<T> next = last.next;
+			if (next != null) {
+				// tail is lagging: help move it on
+				tail.compareAndSet(last, next);
+			} else if (NEXT.compareAndSet(last, null, node)) {
+				// linked in; a failure here means someone else moved the tail
+				tail.compareAndSet(last, node);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Deletes and returns the front of the queue, if there is one.
+	 *
+	 * @return Item at the front of the queue, null if the queue is empty
+	 */
+	public T poll() {
+		for (;;) {
+			Node<T> first = head.get();
+			Node<T> last = tail.get();
+			Node<T> next = first.next;
+			if (first != head.get()) {
+				continue;
+			}
+			if (next == null) {
+				return null;
+			}
+			if (first == last) {
+				// an enqueue has linked a node but not yet moved the tail
+				tail.compareAndSet(last, next);
+			} else {
+				T item = next.item;
+				if (head.compareAndSet(first, next)) {
+					// next is the dummy now; don't keep its item alive
+					next.item = null;
+					return item;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Deletes and returns the front of the queue
+	 *
+	 * @return Item at the front of the queue
+	 * @throws NoSuchElementException If the queue is empty
+	 */
+	public T dequeue()
+	throws NoSuchElementException {
+		T item = poll();
+		if (item == null) {
+			throw new NoSuchElementException("queue is empty");
+		}
+		return item;
+	}
+
+	/**
+	 * Tells if queue is empty. Other threads may change that at any time.
+	 *
+	 * @return True if queue is empty, false if not.
+	 */
+	public boolean isEmpty() {
+		return head.get().next == null;
+	}
+
+	/**
+	 * Returns number of items in queue, by counting them: this takes time in
+	 * proportion to the size, and is only exact if no other thread changes the
+	 * queue meanwhile.
+	 *
+	 * @return Number of items in queue.
+	 */
+	public int size() {
+		int size = 0;
+		for (Node<T> node=head.get().next; node != null && size < Integer.MAX_VALUE; node=node.next) {
+			size++;
+		}
+		return size;
+	}
+}
@@ -0,0 +1,179 @@
+package structures;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A union-find (disjoint sets) structure over the items 0..n-1, safe for
+ * concurrent union and find.
+ *
+ * Each set is a tree of parent links. Union links the root of lower rank under
+ * the other (ties broken by index), and find shortens the paths it walks (path
+ * halving): union by rank with path compression, so any sequence of unions
+ * keeps the trees O(log n) deep, and operations take nearly constant time.
+ *
+ * Both are done with compare-and-set, with no locks. An item's rank and parent
+ * are packed into one long, so a link is made only if the root still has the
+ * rank the decision was based on. Ranks only grow, and only at roots, so
+ * (rank, index) strictly increases up every path, and no interleaving of
+ * unions can link roots into a cycle.
+ */
+public class UnionFind {
+
+	/**
+	 * Rank of each item in the high 32 bits, parent in the low 32 bits; roots
+	 * are their own parents
+	 */
+	private volatile AtomicLongArray nodes;
+
+	/**
+	 * Number of sets
+	 */
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * Initializes to n sets of one item each.
+	 *
+	 * @param n Number of items
+	 */
+	public UnionFind(int n) {
+		nodes = new AtomicLongArray(n);
+		for (int i=0; i < n; i++) {
+			nodes.lazySet(i, node(0, i));
+		}
+		count.set(n);
+	}
+
+	private static long node(int rank, int parent) {
+		return ((long)rank << 32) | (parent & 0xffffffffL);
+	}
+
+	private static int rank(long node) {
+		return (int)(node >>> 32);
+	}
+
+	private static int parent(long node) {
+		return (int)node;
+	}
+
+	/**
+	 * Returns the root of the set of an item.
+	 *
+	 * @param x Item
+	 * @return Root of set; two items are in the same set if they have the same root
+	 */
+	public int find(int x) {
+		AtomicLongArray nodes = this.nodes;
+		for (;;) {
+			long node = nodes.get(x);
+			int p = parent(node);
+			if (p == x) {
+				return x;
+			}
+			int gp = parent(nodes.get(p));
+			if (gp != p) {
+				// halve the path, keeping the rank; a failed update just means
+				// someone else moved it
+				nodes.compareAndSet(x, node, node(rank(node), gp));
+			}
+			x = gp;
+		}
+	}
+
+	/**
+	 * Merges the sets of two items.
+	 *
+	 * @param x Item
+	 * @param y Item
+	 * @return True if they were in different sets, false if already in the same one
+	 */
+	public boolean union(int x, int y) {
+		AtomicLongArray nodes = this.nodes;
+		for (;;) {
+			x = find(x);
+			y = find(y);
+			if (x == y) {
+				return false;
+			}
+			long nx = nodes.get(x), ny = nodes.get(y);
+			if (parent(nx) != x || parent(ny) != y) {
+				// linked since find
+				continue;
+			}
+			int rx = rank(nx), ry = rank(ny);
+			// link the lower rank root (ties broken by index) under the other
+			if (rx > ry || (rx == ry && x > y)) {
+				int t = x; x = y; y = t;
+				long n = nx; nx = ny; ny = n;
+				t = rx; rx = ry; ry = t;
+			}
+			// fails if x was linked, or its rank grew, since it was read
+			if (nodes.compareAndSet(x, nx, node(rx, y))) {
+				if (rx == ry) {
+					// fails if y was linked or grew meanwhile, which is as good
+					nodes.compareAndSet(y, ny, node(ry + 1, y));
+				}
+				count.decrementAndGet();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Tells if two items are in the same set.
+	 *
+	 * @param x Item
+	 * @param y Item
+	 * @return True if they are in the same set
+	 */
+	public boolean connected(int x, int y) {
+		for (;;) {
+			x = find(x);
+			y = find(y);
+			if (x == y) {
+				return true;
+			}
+			// x is still a root if no union moved it since
+			if (parent(nodes.get(x)) == x) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Returns number of items.
+	 *
+	 * @return Number of items
+	 */
+	public int size() {
+		return nodes.length();
+	}
+
+	/**
+	 * Returns number of sets.
+	 *
+	 * @return Number of sets
+	 */
+	public int count() {
+		return count.get();
+	}
+
+	/**
+	 * Adds items, each in a set of its own, up to a new size. This must not run
+	 * concurrently with other calls.
+	 *
+	 * @param n New number of items
+	 */
+	public void grow(int n) {
+		int old = nodes.length();
+		if (n <= old) {
+			return;
+		}
+		AtomicLongArray bigger = new AtomicLongArray(n);
+		for (int i=0; i < n; i++) {
+			bigger.lazySet(i, i < old ? nodes.get(i) : node(0, i));
+		}
+		nodes = bigger;
+		count.addAndGet(n - old);
+	}
+}
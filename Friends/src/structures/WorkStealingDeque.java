@@ -0,0 +1,166 @@
+package structures;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A work-stealing deque (Chase and Lev's algorithm): one owner thread pushes
+ * and pops items at the bottom, like a stack, while any number of other
+ * threads steal items from the top, the oldest first. Owners working mostly
+ * on their own deques, and thieves taking the oldest (typically biggest)
+ * tasks, keep contention low in parallel traversals.
+ *
+ * Items live in a circular array indexed by ever-growing top and bottom
+ * counters; the owner doubles the array when it fills. Thieves claim an item
+ * with a compare-and-set of top. The owner only needs one too when it pops
+ * the last item, which a thief may be trying to steal at the same time.
+ * Top and bottom are volatile, so their reads and writes are sequentially
+ * consistent, which gives the fence between the owner's write of bottom and
+ * read of top that pop needs.
+ *
+ * Only the owner clears slots. A thief leaves the slot it stole from as it
+ * is, until the owner pushes over it: by the time the thief could clear it,
+ * the owner may have pushed the very same object there again.
+ *
+ * @param <T> Parameter type for items in the deque.
+ */
+public class WorkStealingDeque<T> {
+
+	/**
+	 * Items top..bottom-1 are at [index & (length-1)]; length is a power of 2
+	 */
+	private volatile AtomicReferenceArray<T> items;
+
+	/**
+	 * Next index to steal from
+	 */
+	private final AtomicLong top = new AtomicLong();
+
+	/**
+	 * Next index to push at; written only by the owner
+	 */
+	private volatile long bottom;
+
+	/**
+	 * Initializes deque to empty.
+	 */
+	public WorkStealingDeque() {
+		this(16);
+	}
+
+	/**
+	 * Initializes deque to empty, with room for some items before it grows.
+	 *
+	 * @param capacity Number of items to make room for
+	 */
+	public WorkStealingDeque(int capacity) {
+		items = new AtomicReferenceArray<T>(capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1);
+	}
+
+	/**
+	 * Pushes an item at the bottom. Only the owner may call this.
+	 *
+	 * @param item Item to push
+	 * @throws NullPointerException If the item is null
+	 */
+	public void push(T item) {
+		if (item == null) {
+			throw new NullPointerException("can't push null");
+		}
+		long b = bottom, t = top.get();
+		AtomicReferenceArray<T> a = items;
+		if (b - t >= a.length() - 1) {
+			a = grow(a, t, b);
+		}
+		a.lazySet((int)b & (a.length() - 1), item);
+		// the volatile write publishes the item to thieves
+		bottom = b + 1;
+	}
+
+	/**
+	 * Copies items top..bottom-1 to an array twice as big. Thieves still
+	 * reading the old array find the same items there.
+	 */
+	private AtomicReferenceArray<T> grow(AtomicReferenceArray<T> a, long t, long b) {
+		AtomicReferenceArray<T> bigger = new AtomicReferenceArray<T>(a.length() * 2);
+		for (long i=t; i < b; i++) {
+			bigger.lazySet((int)i & (bigger.length() - 1), a.get((int)i & (a.length() - 1)));
+		}
+		items = bigger;
+		return bigger;
+	}
+
+	/**
+	 * Pops the item at the bottom, the one pushed last. Only the owner may call
+	 * this.
+	 *
+	 * @return Item popped, null if the deque is empty
+	 */
+	public T pop() {
+		long b = bottom - 1;
+		AtomicReferenceArray<T> a = items;
+		// claim the bottom item before looking at top: a thief now either sees
+		// it gone, or has already moved top past it
+		bottom = b;
+		long t = top.get();
+		if (t > b) {
+			bottom = b + 1;
+			return null;
+		}
+		int i = (int)b & (a.length() - 1);
+		T item = a.get(i);
+		if (t == b) {
+			// the last item: a thief may be stealing it too
+			if (!top.compareAndSet(t, t + 1)) {
+				item = null;
+			}
+			bottom = b + 1;
+			if (item == null) {
+				return null;
+			}
+		}
+		a.lazySet(i, null);
+		return item;
+	}
+
+	/**
+	 * Steals the item at the top, the oldest. Any thread may call this.
+	 *
+	 * @return Item stolen; null if the deque is empty, or another thread took
+	 *         the item first
+	 */
+	public T steal() {
+		long t = top.get();
+		long b = bottom;
+		if (t >= b) {
+			return null;
+		}
+		AtomicReferenceArray<T> a = items;
+		int i = (int)t & (a.length() - 1);
+		T item = a.get(i);
+		if (!top.compareAndSet(t, t + 1)) {
+			return null;
+		}
+		return item;
+	}
+
+	/**
+	 * Tells if deque is empty. Other threads may change that at any time.
+	 *
+	 * @return True if deque is empty, false if not.
+	 */
+	public boolean isEmpty() {
+		return bottom <= top.get();
+	}
+
+	/**
+	 * Returns number of items in deque; only exact if no other thread changes
+	 * the deque meanwhile.
+	 *
+	 * @return Number of items in deque.
+	 */
+	public int size() {
+		long b = bottom, t = top.get();
+		return (int)Math.max(b - t, 0);
+	}
+}
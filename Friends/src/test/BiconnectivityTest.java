@@ -0,0 +1,187 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Scanner;
+
+import org.junit.jupiter.api.Test;
+
+import friends.Biconnectivity;
+import friends.CsrGraph;
+import friends.Friends;
+import friends.Graph;
+
+class BiconnectivityTest {
+
+	/**
+	 * Checks connectors and bridges against removing each person, and each
+	 * friendship, and counting connected components, on many small random
+	 * graphs: sparse ones full of trees and chains, and denser ones with cycles.
+	 */
+	@Test
+	void testAgainstBruteForce() {
+		Random random = new Random(42);
+		for (int round=0; round < 500; round++) {
+			int n = 1 + random.nextInt(14);
+			int maxEdges = n * (n - 1) / 2;
+			int m = maxEdges == 0 ? 0 : random.nextInt(Math.min(maxEdges, 2 * n) + 1);
+			int[][] edges = randomEdges(random, n, m);
+			CsrGraph g = new CsrGraph(new Scanner(graphText(n, edges)));
+			Biconnectivity b = new Biconnectivity(g);
+
+			HashSet<Integer> expected = new HashSet<Integer>();
+			int whole = components(n, edges, -1, -1);
+			for (int v=0; v < n; v++) {
+				// removing v also loses v itself, which was a component if it had no friends
+				int without = components(n, edges, v, -1);
+				boolean alone = degree(edges, v) == 0;
+				if (without > whole - (alone ? 1 : 0)) {
+					expected.add(v);
+				}
+				assertEquals(expected.contains(v), b.isConnector(v), "person " + v + " in " + graphText(n, edges));
+			}
+			assertEquals(expected, set(b.connectors()));
+
+			HashSet<String> expectedBridges = new HashSet<String>();
+			for (int e=0; e < edges.length; e++) {
+				if (components(n, edges, -1, e) > whole) {
+					expectedBridges.add(pair(edges[e][0], edges[e][1]));
+				}
+			}
+			int[] bridges = b.bridges();
+			HashSet<String> found = new HashSet<String>();
+			for (int i=0; i < bridges.length; i += 2) {
+				found.add(pair(bridges[i], bridges[i+1]));
+			}
+			assertEquals(bridges.length / 2, found.size());
+			assertEquals(expectedBridges, found);
+
+			// every friendship is in exactly one component, both ends in it
+			int covered = 0;
+			for (int c=0; c < b.componentCount(); c++) {
+				HashSet<Integer> people = set(b.component(c));
+				for (int[] edge : edges) {
+					if (people.contains(edge[0]) && people.contains(edge[1])) {
+						covered++;
+					}
+				}
+			}
+			assertEquals(edges.length, covered);
+
+			ArrayList<String> names = new ArrayList<String>();
+			for (int v : expected) {
+				names.add("p" + v);
+			}
+			Graph graph = new Graph(new Scanner(graphText(n, edges)));
+			assertEquals(new HashSet<String>(names), nullToEmpty(Friends.connectors(graph)));
+			assertEquals(new HashSet<String>(names), nullToEmpty(Friends.connectors(g)));
+		}
+	}
+
+	/**
+	 * A chain far longer than the call stack could follow recursively: every
+	 * person but the two ends is a connector, and every friendship a bridge.
+	 */
+	@Test
+	void testLongChain() {
+		int n = 200000;
+		int[][] edges = new int[n-1][];
+		for (int v=0; v < n-1; v++) {
+			edges[v] = new int[] { v, v+1 };
+		}
+		Biconnectivity b = new Biconnectivity(new CsrGraph(new Scanner(graphText(n, edges))));
+		assertEquals(n - 2, b.connectors().length);
+		assertFalse(b.isConnector(0));
+		assertFalse(b.isConnector(n-1));
+		assertEquals(2 * (n - 1), b.bridges().length);
+		assertEquals(n - 1, b.componentCount());
+	}
+
+	private static int[][] randomEdges(Random random, int n, int m) {
+		HashSet<String> seen = new HashSet<String>();
+		int[][] edges = new int[m][];
+		for (int e=0; e < m; ) {
+			int i = random.nextInt(n), j = random.nextInt(n);
+			if (i != j && seen.add(pair(i, j))) {
+				edges[e++] = new int[] { i, j };
+			}
+		}
+		return edges;
+	}
+
+	/**
+	 * Input in the format read by Graph(Scanner): people p0..p(n-1), with some
+	 * of them students
+	 */
+	private static String graphText(int n, int[][] edges) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(n).append('\n');
+		for (int v=0; v < n; v++) {
+			sb.append('p').append(v).append(v % 3 == 0 ? "|y|rutgers\n" : "|n\n");
+		}
+		for (int[] edge : edges) {
+			sb.append('p').append(edge[0]).append("|p").append(edge[1]).append('\n');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Counts connected components, leaving out a person and a friendship
+	 * (-1 for none)
+	 */
+	private static int components(int n, int[][] edges, int skipPerson, int skipEdge) {
+		int[] parent = new int[n];
+		for (int v=0; v < n; v++) {
+			parent[v] = v;
+		}
+		int count = skipPerson < 0 ? n : n - 1;
+		for (int e=0; e < edges.length; e++) {
+			int i = edges[e][0], j = edges[e][1];
+			if (e == skipEdge || i == skipPerson || j == skipPerson) {
+				continue;
+			}
+			int ri = root(parent, i), rj = root(parent, j);
+			if (ri != rj) {
+				parent[ri] = rj;
+				count--;
+			}
+		}
+		return count;
+	}
+
+	private static int root(int[] parent, int v) {
+		while (parent[v] != v) {
+			v = parent[v];
+		}
+		return v;
+	}
+
+	private static int degree(int[][] edges, int v) {
+		int degree = 0;
+		for (int[] edge : edges) {
+			if (edge[0] == v || edge[1] == v) {
+				degree++;
+			}
+		}
+		return degree;
+	}
+
+	private static String pair(int i, int j) {
+		return Math.min(i, j) + "-" + Math.max(i, j);
+	}
+
+	private static HashSet<Integer> set(int[] items) {
+		HashSet<Integer> set = new HashSet<Integer>();
+		for (int item : items) {
+			set.add(item);
+		}
+		return set;
+	}
+
+	private static HashSet<String> nullToEmpty(ArrayList<String> list) {
+		return list == null ? new HashSet<String>() : new HashSet<String>(list);
+	}
+}
@@ -0,0 +1,165 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import friends.CsrGraph;
+import friends.Friends;
+import friends.Graph;
+
+class FriendsTest {
+
+	@Test
+	void testShortestChain() {
+		Graph g = new Graph(new Scanner(graphText(5, new int[][] { {0,1}, {1,2}, {2,3}, {0,4}, {4,3} })));
+		ArrayList<String> chain = Friends.shortestChain(g, "p0", "p3");
+		assertEquals(3, chain.size());
+		assertEquals("p0", chain.get(0));
+		assertEquals("p3", chain.get(2));
+		assertNull(Friends.shortestChain(g, "p0", "p0"));
+		assertNull(Friends.shortestChain(g, "p0", "nobody"));
+		g.addPerson("p5", null);
+		assertNull(Friends.shortestChain(g, "p0", "p5"));
+		g.addFriendship("p5", "p3");
+		assertEquals(4, Friends.shortestChain(g, "p0", "p5").size());
+	}
+
+	/**
+	 * Cliques found by search over a Graph must be those found on its CSR form,
+	 * in the same order.
+	 */
+	@Test
+	void testCliques() {
+		Random random = new Random(44);
+		for (int round=0; round < 50; round++) {
+			int n = 1 + random.nextInt(60);
+			StringBuilder sb = new StringBuilder();
+			sb.append(n).append('\n');
+			for (int v=0; v < n; v++) {
+				int school = random.nextInt(4);
+				sb.append('p').append(v).append(school == 3 ? "|n\n" : "|y|school" + school + "\n");
+			}
+			for (int e=random.nextInt(2 * n + 1); e > 0; e--) {
+				int i = random.nextInt(n), j = random.nextInt(n);
+				if (i != j) {
+					sb.append('p').append(i).append("|p").append(j).append('\n');
+				}
+			}
+			Graph graph = new Graph(new Scanner(sb.toString()));
+			CsrGraph csr = new CsrGraph(new Scanner(sb.toString()));
+			for (int school=0; school < 4; school++) {
+				assertEquals(Friends.cliques(csr, "school" + school), Friends.cliques(graph, "school" + school));
+			}
+		}
+		Graph g = new Graph(new Scanner(graphText(3, new int[][] { {0,1} })));
+		assertTrue(Friends.cliques(g, "rutgers").isEmpty());
+	}
+
+	/**
+	 * Threads query the same graph at once, in both forms. Every chain must be
+	 * a real chain between the two people, as short as a query on its own finds.
+	 */
+	@Test
+	void testConcurrentShortestChains()
+	throws InterruptedException {
+		final int n = 2000, queries = 400, threads = 4;
+		Random random = new Random(40);
+		int[][] edges = new int[3 * n][];
+		for (int e=0; e < edges.length; e++) {
+			edges[e] = new int[] { random.nextInt(n), random.nextInt(n) };
+			if (edges[e][0] == edges[e][1]) {
+				edges[e][1] = (edges[e][1] + 1) % n;
+			}
+		}
+		String text = graphText(n, edges);
+		final Graph graph = new Graph(new Scanner(text));
+		final CsrGraph csr = new CsrGraph(new Scanner(text));
+		final HashSet<String> friendships = new HashSet<String>();
+		for (int[] edge : edges) {
+			friendships.add("p" + edge[0] + "|p" + edge[1]);
+			friendships.add("p" + edge[1] + "|p" + edge[0]);
+		}
+		final String[][] pairs = new String[queries][];
+		final int[] lengths = new int[queries];
+		for (int q=0; q < queries; q++) {
+			pairs[q] = new String[] { "p" + random.nextInt(n), "p" + random.nextInt(n) };
+			ArrayList<String> chain = Friends.shortestChain(graph, pairs[q][0], pairs[q][1]);
+			lengths[q] = chain == null ? -1 : chain.size();
+		}
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] workers = new Thread[threads];
+		for (int t=0; t < threads; t++) {
+			final int first = t;
+			workers[t] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				for (int round=0; round < 5; round++) {
+					for (int q=first; q < queries; q += threads) {
+						String problem = check(Friends.shortestChain(graph, pairs[q][0], pairs[q][1]), pairs[q], lengths[q], friendships);
+						if (problem == null) {
+							problem = check(Friends.shortestChain(csr, pairs[q][0], pairs[q][1]), pairs[q], lengths[q], friendships);
+						}
+						if (problem != null) {
+							failure.compareAndSet(null, problem);
+						}
+					}
+				}
+			});
+			workers[t].start();
+		}
+		start.countDown();
+		for (Thread worker : workers) {
+			worker.join();
+		}
+		assertNull(failure.get(), failure.get());
+	}
+
+	/**
+	 * Returns what is wrong with a chain, or null if nothing is
+	 */
+	private static String check(ArrayList<String> chain, String[] pair, int length, HashSet<String> friendships) {
+		int found = chain == null ? -1 : chain.size();
+		if (found != length) {
+			return pair[0] + " to " + pair[1] + ": chain of " + found + ", expected " + length;
+		}
+		if (chain == null) {
+			return null;
+		}
+		if (!chain.get(0).equals(pair[0]) || !chain.get(chain.size() - 1).equals(pair[1])) {
+			return pair[0] + " to " + pair[1] + ": wrong ends " + chain;
+		}
+		for (int i=1; i < chain.size(); i++) {
+			if (!friendships.contains(chain.get(i-1) + "|" + chain.get(i))) {
+				return pair[0] + " to " + pair[1] + ": not friends in " + chain;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Input in the format read by Graph(Scanner), people p0..p(n-1)
+	 */
+	private static String graphText(int n, int[][] edges) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(n).append('\n');
+		for (int v=0; v < n; v++) {
+			sb.append('p').append(v).append("|n\n");
+		}
+		for (int[] edge : edges) {
+			sb.append('p').append(edge[0]).append("|p").append(edge[1]).append('\n');
+		}
+		return sb.toString();
+	}
+}
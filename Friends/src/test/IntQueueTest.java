@@ -0,0 +1,44 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import structures.IntQueue;
+
+class IntQueueTest {
+
+	@Test
+	void testFifo() {
+		IntQueue queue = new IntQueue(2);
+		assertTrue(queue.isEmpty());
+		assertThrows(NoSuchElementException.class, () -> queue.dequeue());
+		for (int round=0; round < 3; round++) {
+			// wraps around, then grows while wrapped
+			for (int i=0; i < 5; i++) {
+				queue.enqueue(i);
+			}
+			assertEquals(0, queue.dequeue());
+			assertEquals(1, queue.peek());
+			queue.enqueueAll(new int[] { 5, 6, 7 }, 0, 3);
+			assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7 }, queue.toArray());
+			assertEquals(4, queue.get(3));
+			int[] out = new int[7];
+			assertEquals(7, queue.dequeueAll(out, 0, 10));
+			assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 6, 7 }, out);
+			assertTrue(queue.isEmpty());
+		}
+		queue.enqueue(9);
+		queue.clear();
+		assertEquals(0, queue.size());
+	}
+
+	@Test
+	void testCapacity() {
+		assertEquals(0, new IntQueue(-1).size());
+		assertThrows(IllegalArgumentException.class, () -> new IntQueue((1 << 30) + 1));
+		assertThrows(IllegalArgumentException.class, () -> new IntQueue(Integer.MAX_VALUE));
+	}
+}
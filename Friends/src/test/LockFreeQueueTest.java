@@ -0,0 +1,162 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+import structures.LockFreeQueue;
+
+class LockFreeQueueTest {
+
+	/**
+	 * Time after which a round that hasn't taken every item fails, an item
+	 * having been lost
+	 */
+	private static final long TIMEOUT = 5000000000L;
+
+	@Test
+	void testFifo() {
+		LockFreeQueue<String> queue = new LockFreeQueue<String>();
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+		assertThrows(NoSuchElementException.class, () -> queue.dequeue());
+		queue.enqueue("a");
+		queue.enqueue("b");
+		queue.enqueue("c");
+		assertEquals(3, queue.size());
+		assertEquals("a", queue.dequeue());
+		assertEquals("b", queue.poll());
+		queue.enqueue("d");
+		assertEquals("c", queue.poll());
+		assertEquals("d", queue.poll());
+		assertTrue(queue.isEmpty());
+		assertEquals(0, queue.size());
+		assertThrows(NullPointerException.class, () -> queue.enqueue(null));
+	}
+
+	/**
+	 * Two producers and two consumers race. Every item must come out exactly
+	 * once, and each consumer must see each producer's items in order.
+	 */
+	@Test
+	void testStressDistinct()
+	throws InterruptedException {
+		final int producers = 2, consumers = 2, perProducer = 5000;
+		for (int round=0; round < 50; round++) {
+			final LockFreeQueue<Integer> queue = new LockFreeQueue<Integer>();
+			final AtomicIntegerArray taken = new AtomicIntegerArray(producers * perProducer);
+			final AtomicInteger left = new AtomicInteger(producers * perProducer);
+			final AtomicBoolean ok = new AtomicBoolean(true);
+			Runnable[] tasks = new Runnable[producers + consumers];
+			for (int p=0; p < producers; p++) {
+				final int first = p * perProducer;
+				tasks[p] = () -> {
+					for (int i=0; i < perProducer; i++) {
+						queue.enqueue(first + i);
+					}
+				};
+			}
+			for (int c=0; c < consumers; c++) {
+				tasks[producers + c] = () -> {
+					// last item seen from each producer, by this consumer
+					int[] last = new int[producers];
+					Arrays.fill(last, -1);
+					long deadline = System.nanoTime() + TIMEOUT;
+					while (left.get() > 0 && System.nanoTime() < deadline) {
+						Integer item = queue.poll();
+						if (item == null) {
+							Thread.yield();
+							continue;
+						}
+						int p = item / perProducer;
+						if (taken.getAndIncrement(item) != 0 || item <= last[p]) {
+							ok.set(false);
+						}
+						last[p] = item;
+						left.decrementAndGet();
+					}
+				};
+			}
+			race(tasks);
+			assertTrue(ok.get(), "item taken twice or out of order");
+			assertEquals(0, left.get(), "item lost");
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	/**
+	 * Producers enqueue the same object over and over; the number dequeued
+	 * must be the number enqueued.
+	 */
+	@Test
+	void testStressSameObject()
+	throws InterruptedException {
+		final int producers = 2, consumers = 2, perProducer = 5000;
+		final Integer same = Integer.valueOf(7);
+		for (int round=0; round < 50; round++) {
+			final LockFreeQueue<Integer> queue = new LockFreeQueue<Integer>();
+			final AtomicInteger left = new AtomicInteger(producers * perProducer);
+			final AtomicBoolean ok = new AtomicBoolean(true);
+			Runnable[] tasks = new Runnable[producers + consumers];
+			for (int p=0; p < producers; p++) {
+				tasks[p] = () -> {
+					for (int i=0; i < perProducer; i++) {
+						queue.enqueue(same);
+					}
+				};
+			}
+			for (int c=0; c < consumers; c++) {
+				tasks[producers + c] = () -> {
+					long deadline = System.nanoTime() + TIMEOUT;
+					while (left.get() > 0 && System.nanoTime() < deadline) {
+						Integer item = queue.poll();
+						if (item == null) {
+							Thread.yield();
+							continue;
+						}
+						if (item != same) {
+							ok.set(false);
+						}
+						left.decrementAndGet();
+					}
+				};
+			}
+			race(tasks);
+			assertTrue(ok.get());
+			assertEquals(0, left.get(), "item lost");
+			assertNull(queue.poll());
+		}
+	}
+
+	/**
+	 * Starts threads, lets them go at once, and waits for them all.
+	 */
+	private static void race(Runnable... tasks)
+	throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[tasks.length];
+		for (int i=0; i < tasks.length; i++) {
+			final Runnable task = tasks[i];
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					return;
+				}
+				task.run();
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+}
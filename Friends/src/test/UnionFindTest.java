@@ -0,0 +1,91 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.Test;
+
+import structures.UnionFind;
+
+class UnionFindTest {
+
+	@Test
+	void testUnion() {
+		UnionFind uf = new UnionFind(6);
+		assertEquals(6, uf.count());
+		assertTrue(uf.union(0, 1));
+		assertTrue(uf.union(2, 3));
+		assertFalse(uf.union(1, 0));
+		assertTrue(uf.union(1, 3));
+		assertEquals(3, uf.count());
+		assertTrue(uf.connected(0, 2));
+		assertFalse(uf.connected(0, 4));
+		uf.grow(8);
+		assertEquals(8, uf.size());
+		assertEquals(5, uf.count());
+		assertTrue(uf.connected(3, 0));
+		assertTrue(uf.union(7, 0));
+		assertTrue(uf.connected(7, 2));
+	}
+
+	@Test
+	void testOrderedUnions() {
+		int n = 1 << 16;
+		UnionFind uf = new UnionFind(n);
+		for (int i=1; i < n; i++) {
+			assertTrue(uf.union(i - 1, i));
+		}
+		assertEquals(1, uf.count());
+		assertTrue(uf.connected(0, n - 1));
+		assertFalse(uf.union(n - 1, 0));
+	}
+
+	/**
+	 * Threads union random pairs of a small set of items, so they keep racing
+	 * on the same roots. The sets and their count must come out as a single
+	 * thread doing all the unions would leave them.
+	 */
+	@Test
+	void testConcurrentUnions()
+	throws InterruptedException {
+		final int n = 64, threads = 4, perThread = 40;
+		for (int round=0; round < 500; round++) {
+			final UnionFind uf = new UnionFind(n);
+			UnionFind expected = new UnionFind(n);
+			final int[][] pairs = new int[threads * perThread][];
+			Random random = new Random(round);
+			for (int i=0; i < pairs.length; i++) {
+				pairs[i] = new int[] { random.nextInt(n), random.nextInt(n) };
+				expected.union(pairs[i][0], pairs[i][1]);
+			}
+			final CountDownLatch start = new CountDownLatch(1);
+			Thread[] workers = new Thread[threads];
+			for (int t=0; t < threads; t++) {
+				final int first = t;
+				workers[t] = new Thread(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					for (int i=first; i < pairs.length; i += threads) {
+						uf.union(pairs[i][0], pairs[i][1]);
+						uf.find(pairs[i][1]);
+					}
+				});
+				workers[t].start();
+			}
+			start.countDown();
+			for (Thread worker : workers) {
+				worker.join();
+			}
+			assertEquals(expected.count(), uf.count());
+			for (int x=0; x < n; x++) {
+				assertEquals(expected.connected(0, x), uf.connected(0, x));
+				assertEquals(expected.connected(x, n - 1 - x), uf.connected(x, n - 1 - x));
+			}
+		}
+	}
+}
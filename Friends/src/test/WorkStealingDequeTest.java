@@ -0,0 +1,165 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.jupiter.api.Test;
+
+import structures.WorkStealingDeque;
+
+class WorkStealingDequeTest {
+
+	/**
+	 * Time after which a round that hasn't taken every item fails, an item
+	 * having been lost
+	 */
+	private static final long TIMEOUT = 5000000000L;
+
+	@Test
+	void testOwnerAndThief() {
+		WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>(2);
+		assertNull(deque.pop());
+		assertNull(deque.steal());
+		for (int i=0; i < 10; i++) {
+			deque.push(i);
+		}
+		assertEquals(10, deque.size());
+		assertEquals(9, (int)deque.pop());
+		assertEquals(0, (int)deque.steal());
+		assertEquals(1, (int)deque.steal());
+		assertEquals(8, (int)deque.pop());
+		assertEquals(6, deque.size());
+		while (deque.pop() != null) {
+			// drain
+		}
+		assertTrue(deque.isEmpty());
+		assertThrows(NullPointerException.class, () -> deque.push(null));
+	}
+
+	/**
+	 * An owner pushing distinct items and popping now and then races thieves;
+	 * every item must be taken exactly once.
+	 */
+	@Test
+	void testStressDistinct()
+	throws InterruptedException {
+		for (int round=0; round < 200; round++) {
+			final int items = 2000;
+			final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>(2);
+			final AtomicIntegerArray taken = new AtomicIntegerArray(items);
+			final AtomicInteger left = new AtomicInteger(items);
+			final AtomicBoolean ok = new AtomicBoolean(true);
+			race(deque, items, i -> i, round, item -> {
+				if (taken.getAndIncrement(item) != 0) {
+					ok.set(false);
+				}
+			}, left);
+			assertTrue(ok.get(), "item taken twice");
+			assertEquals(0, left.get(), "item lost");
+			assertTrue(deque.isEmpty());
+		}
+	}
+
+	/**
+	 * As above, but the owner pushes the same object again and again, as with
+	 * cached boxes or re-pushed tasks, in a deque small enough that slots are
+	 * reused while thieves are still stealing from them. The number taken
+	 * must be the number pushed.
+	 */
+	@Test
+	void testStressSameObject()
+	throws InterruptedException {
+		final Integer same = Integer.valueOf(7);
+		for (int round=0; round < 200; round++) {
+			final int items = 2000;
+			final WorkStealingDeque<Integer> deque = new WorkStealingDeque<Integer>(2);
+			final AtomicInteger left = new AtomicInteger(items);
+			final AtomicBoolean ok = new AtomicBoolean(true);
+			race(deque, items, i -> same, round, item -> {
+				if (item != same) {
+					ok.set(false);
+				}
+			}, left);
+			assertTrue(ok.get());
+			assertEquals(0, left.get(), "item lost");
+			assertTrue(deque.isEmpty());
+			assertNull(deque.pop());
+			assertNull(deque.steal());
+		}
+	}
+
+	private interface Item {
+		Integer of(int i);
+	}
+
+	private interface Check {
+		void taken(Integer item);
+	}
+
+	/**
+	 * Runs an owner pushing items, popping a few at random after each push and
+	 * then draining, against three thieves, until all items are taken or time
+	 * runs out.
+	 */
+	private static void race(final WorkStealingDeque<Integer> deque, final int items, final Item item,
+			final long seed, final Check check, final AtomicInteger left)
+	throws InterruptedException {
+		final CountDownLatch start = new CountDownLatch(1);
+		final long deadline = System.nanoTime() + TIMEOUT;
+		Thread[] threads = new Thread[4];
+		threads[0] = new Thread(() -> {
+			await(start);
+			Random random = new Random(seed);
+			for (int i=0; i < items; i++) {
+				deque.push(item.of(i));
+				for (int k=random.nextInt(4) - 1; k > 0; k--) {
+					take(deque.pop(), check, left);
+				}
+			}
+			while (left.get() > 0 && System.nanoTime() < deadline) {
+				if (!take(deque.pop(), check, left)) {
+					Thread.yield();
+				}
+			}
+		});
+		for (int t=1; t < threads.length; t++) {
+			threads[t] = new Thread(() -> {
+				await(start);
+				while (left.get() > 0 && System.nanoTime() < deadline) {
+					if (!take(deque.steal(), check, left)) {
+						Thread.yield();
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+	}
+
+	private static boolean take(Integer item, Check check, AtomicInteger left) {
+		if (item == null) {
+			return false;
+		}
+		check.taken(item);
+		left.decrementAndGet();
+		return true;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
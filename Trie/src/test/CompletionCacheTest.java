@@ -0,0 +1,74 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+import trie.CompletionCache;
+import trie.ConcurrentTrie;
+
+class CompletionCacheTest {
+
+	@Test
+	void testHitsAndInvalidation() {
+		ConcurrentTrie trie = new ConcurrentTrie(new String[] { "bear", "bull", "bell" });
+		CompletionCache cache = new CompletionCache(trie, 8);
+		assertEquals(3, cache.completionList("b").size());
+		assertEquals(3, cache.completionList("b").size());
+		assertNull(cache.completionList("x"));
+		assertNull(cache.completionList("x"));
+		assertEquals(2, cache.hits());
+		assertEquals(2, cache.misses());
+		trie.insert("bat");
+		assertEquals(4, cache.completionList("b").size());
+		assertEquals(1, cache.invalidations());
+		assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Lookups racing inserts must always see every word inserted before they
+	 * started, however the version checks interleave.
+	 */
+	@Test
+	void testConcurrentInserts()
+	throws InterruptedException {
+		final int words = 2000;
+		final ConcurrentTrie trie = new ConcurrentTrie();
+		final CompletionCache cache = new CompletionCache(trie, 4);
+		final AtomicBoolean ok = new AtomicBoolean(true);
+		Thread writer = new Thread(() -> {
+			for (int i=0; i < words; i++) {
+				trie.insert(String.format("w%05d", i));
+			}
+		});
+		Thread[] readers = new Thread[3];
+		for (int r=0; r < readers.length; r++) {
+			readers[r] = new Thread(() -> {
+				int seen = 0;
+				while (seen < words) {
+					int before = trie.size();
+					List<String> list = cache.completionList("w");
+					int count = list == null ? 0 : list.size();
+					if (count < before) {
+						ok.set(false);
+						return;
+					}
+					seen = count;
+				}
+			});
+		}
+		writer.start();
+		for (Thread reader : readers) {
+			reader.start();
+		}
+		writer.join();
+		for (Thread reader : readers) {
+			reader.join();
+		}
+		assertTrue(ok.get());
+		assertEquals(words, cache.completionList("w").size());
+	}
+}
@@ -0,0 +1,138 @@
+package test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import trie.ConcurrentTrie;
+
+class ConcurrentTrieTest {
+
+	@Test
+	void testInsertPrefixOfInternalNode() {
+		ConcurrentTrie trie = new ConcurrentTrie(new String[] { "abc", "abd" });
+		assertThrows(IllegalArgumentException.class, () -> trie.insert("ab"));
+		assertEquals(2, trie.size());
+		assertTrue(trie.contains("abc"));
+		assertTrue(trie.contains("abd"));
+		assertFalse(trie.contains("ab"));
+	}
+
+	@Test
+	void testInsertPrefixOfLeaf() {
+		ConcurrentTrie trie = new ConcurrentTrie(new String[] { "abc" });
+		assertThrows(IllegalArgumentException.class, () -> trie.insert("ab"));
+		assertThrows(IllegalArgumentException.class, () -> trie.insert("abcd"));
+		assertThrows(IllegalArgumentException.class, () -> trie.insert(""));
+		assertEquals(1, trie.size());
+	}
+
+	@Test
+	void testInsert() {
+		ConcurrentTrie trie = new ConcurrentTrie();
+		assertNull(trie.completionList("a"));
+		assertTrue(trie.insert("door"));
+		assertTrue(trie.insert("dorm"));
+		assertTrue(trie.insert("doom"));
+		assertFalse(trie.insert("dorm"));
+		assertEquals(3, trie.size());
+		assertEquals(new HashSet<String>(trie.completionList("do")), set("door", "dorm", "doom"));
+		assertEquals(new HashSet<String>(trie.completionList("dor")), set("dorm"));
+		assertNull(trie.completionList("dx"));
+	}
+
+	/**
+	 * Writers insert while readers query. A reader must see every word whose
+	 * insert had returned before the query started, and never a partial trie:
+	 * no duplicates, nothing that wasn't inserted.
+	 */
+	@Test
+	void testConcurrentInsertAndQuery()
+	throws InterruptedException {
+		final int writers = 2, readers = 3, perWriter = 3000;
+		final ConcurrentTrie trie = new ConcurrentTrie();
+		// done[w] is the number of words writer w has finished inserting
+		final AtomicIntegerArray done = new AtomicIntegerArray(writers);
+		final AtomicReference<String> failure = new AtomicReference<String>();
+		final CountDownLatch start = new CountDownLatch(1);
+		Thread[] threads = new Thread[writers + readers];
+		for (int w=0; w < writers; w++) {
+			final int writer = w;
+			threads[w] = new Thread(() -> {
+				await(start);
+				for (int i=0; i < perWriter; i++) {
+					if (!trie.insert(word(writer, i))) {
+						failure.compareAndSet(null, "insert of new word returned false: " + word(writer, i));
+					}
+					done.set(writer, i + 1);
+				}
+			});
+		}
+		for (int r=0; r < readers; r++) {
+			threads[writers + r] = new Thread(() -> {
+				await(start);
+				for (int round=0; round < 200 && failure.get() == null; round++) {
+					int[] seen = new int[writers];
+					for (int w=0; w < writers; w++) {
+						seen[w] = done.get(w);
+					}
+					for (int w=0; w < writers; w++) {
+						if (seen[w] > 0 && !trie.contains(word(w, seen[w] - 1))) {
+							failure.compareAndSet(null, "inserted word not visible: " + word(w, seen[w] - 1));
+						}
+						ArrayList<String> list = trie.completionList("w" + w);
+						int count = list == null ? 0 : list.size();
+						if (count < seen[w] || (list != null && new HashSet<String>(list).size() != count)) {
+							failure.compareAndSet(null, "completions of w" + w + ": " + count + " words, expected at least " + seen[w]);
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertNull(failure.get(), failure.get());
+		assertEquals(writers * perWriter, trie.size());
+		HashSet<String> expected = new HashSet<String>();
+		for (int w=0; w < writers; w++) {
+			for (int i=0; i < perWriter; i++) {
+				expected.add(word(w, i));
+			}
+		}
+		assertEquals(expected, new HashSet<String>(trie.completionList("w")));
+	}
+
+	/**
+	 * Words of the same length, so none is a prefix of another
+	 */
+	private static String word(int writer, int i) {
+		return String.format("w%d%05d", writer, i);
+	}
+
+	private static HashSet<String> set(String... words) {
+		HashSet<String> set = new HashSet<String>();
+		for (String word : words) {
+			set.add(word);
+		}
+		return set;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
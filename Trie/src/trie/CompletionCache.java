@@ -0,0 +1,179 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class is a bounded, thread-safe cache of completion lists in front of a
+ * ConcurrentTrie. Typeahead traffic is skewed toward a few short prefixes, which
+ * are also the most expensive to complete, so caching them saves most of the work.
+ *
+ * Entries are evicted least recently used first. The whole cache is dropped as
+ * soon as a lookup sees that the trie has grown, so a cached list never misses
+ * words inserted before the lookup started. The cache's version only moves
+ * forward: a lookup that saw an older version than the cache's goes to the
+ * trie. Lists are computed outside the cache lock, so a slow miss does not
+ * hold up hits on other prefixes.
+ */
+public class CompletionCache {
+
+	/**
+	 * Marks a cached prefix with no completions
+	 */
+	private static final List<String> NO_MATCH = Collections.emptyList();
+
+	private final ConcurrentTrie trie;
+	private final int capacity;
+
+	/**
+	 * Cached lists in access order, eldest first; guarded by itself
+	 */
+	private final LinkedHashMap<String,List<String>> lists;
+
+	/**
+	 * Trie version the cached lists were computed from; guarded by lists
+	 */
+	private long version;
+
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong(), invalidations = new AtomicLong();
+
+	/**
+	 * Initializes an empty cache in front of a trie.
+	 *
+	 * @param trie Trie to complete prefixes with
+	 * @param capacity Maximum number of prefixes to cache
+	 */
+	public CompletionCache(ConcurrentTrie trie, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.trie = trie;
+		this.capacity = capacity;
+		this.version = trie.version();
+		this.lists = new LinkedHashMap<String,List<String>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			protected boolean removeEldestEntry(Map.Entry<String,List<String>> eldest) {
+				if (size() > CompletionCache.this.capacity) {
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns all words in the trie that start with the prefix, from the cache
+	 * if possible. The returned list can't be modified.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Words that start with the prefix, in no particular order.
+	 *         If there is no word in the trie that has this prefix, null is returned.
+	 */
+	public List<String> completionList(String prefix) {
+		long current = trie.version();
+		List<String> cached;
+		synchronized (lists) {
+			if (current > version) {
+				lists.clear();
+				version = current;
+				invalidations.incrementAndGet();
+			}
+			// a lookup that read the version before another advanced it bypasses
+			// the cache, rather than moving the version back
+			cached = current == version ? lists.get(prefix) : null;
+		}
+		if (cached != null) {
+			hits.incrementAndGet();
+			return cached == NO_MATCH ? null : cached;
+		}
+		misses.incrementAndGet();
+		ArrayList<String> matches = trie.completionList(prefix);
+		List<String> list = matches == null ? NO_MATCH : Collections.unmodifiableList(matches);
+		synchronized (lists) {
+			// a list computed from a trie older than the cache's is not kept
+			if (version == current) {
+				lists.put(prefix, list);
+			}
+		}
+		return matches == null ? null : list;
+	}
+
+	/**
+	 * Returns at most limit of the words in the trie that start with the prefix.
+	 * Lists are cached whole, so every limit is served by the same entry.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param limit Maximum number of words to return
+	 * @return Up to limit words that start with the prefix.
+	 *         If there is no word in the trie that has this prefix, null is returned.
+	 */
+	public List<String> completionList(String prefix, int limit) {
+		List<String> matches = completionList(prefix);
+		if (matches == null || matches.size() <= limit) {
+			return matches;
+		}
+		return matches.subList(0, limit);
+	}
+
+	/**
+	 * Drops all cached lists.
+	 */
+	public void clear() {
+		synchronized (lists) {
+			lists.clear();
+		}
+	}
+
+	/**
+	 * Returns number of prefixes cached.
+	 *
+	 * @return Number of cached prefixes
+	 */
+	public int size() {
+		synchronized (lists) {
+			return lists.size();
+		}
+	}
+
+	/**
+	 * Returns number of lookups answered from the cache.
+	 *
+	 * @return Number of hits
+	 */
+	public long hits() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns number of lookups that had to complete the prefix on the trie.
+	 *
+	 * @return Number of misses
+	 */
+	public long misses() {
+		return misses.get();
+	}
+
+	/**
+	 * Returns number of lists evicted to stay within capacity.
+	 *
+	 * @return Number of evictions
+	 */
+	public long evictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * Returns number of times the cache was dropped because the trie changed.
+	 *
+	 * @return Number of invalidations
+	 */
+	public long invalidations() {
+		return invalidations.get();
+	}
+}
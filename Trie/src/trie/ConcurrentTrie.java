@@ -0,0 +1,241 @@
+package trie;
+
+import java.util.ArrayList;
+
+/**
+ * This class implements a thread-safe trie for read-mostly workloads.
+ *
+ * Readers never block. An insert copies only the nodes on the path it changes
+ * (path copying) and publishes the new root through a volatile reference, so a
+ * query always runs against a complete, unchanging trie - either the one before
+ * or the one after a concurrent insert. Writers are serialized on this object.
+ *
+ * As with {@link Trie}, words are expected in lower case, and no word may be a
+ * prefix of another word.
+ *
+ */
+public class ConcurrentTrie {
+
+	/**
+	 * A published, immutable view of the trie: the root, and the words its
+	 * nodes index into. Slots at or beyond size are never read through this view.
+	 */
+	private static final class Snapshot {
+		final TrieNode root;
+		final String[] words;
+		final int size;
+
+		Snapshot(TrieNode root, String[] words, int size) {
+			this.root = root;
+			this.words = words;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Current snapshot, replaced (never modified) by writers
+	 */
+	private volatile Snapshot current;
+
+	/**
+	 * Counters for completion queries, null if not recorded
+	 */
+	private volatile TrieMetrics metrics;
+
+	/**
+	 * Initializes an empty trie.
+	 */
+	public ConcurrentTrie() {
+		current = new Snapshot(new TrieNode(null, null, null), new String[16], 0);
+	}
+
+	/**
+	 * Initializes a trie with all words in the input array, inserted in sequence
+	 * from first to last, exactly as {@link Trie#buildTrie(String[])} would.
+	 *
+	 * @param allWords Input array of words (lowercase) to be inserted.
+	 */
+	public ConcurrentTrie(String[] allWords) {
+		String[] words = new String[Math.max(16, allWords.length)];
+		System.arraycopy(allWords, 0, words, 0, allWords.length);
+		current = new Snapshot(Trie.buildTrie(allWords), words, allWords.length);
+	}
+
+	/**
+	 * Inserts a word. Concurrent queries are not blocked, and see the word once
+	 * this method returns. Inserting a word that is already present does nothing.
+	 *
+	 * @param word Word (lowercase) to be inserted
+	 * @return True if the word was inserted, false if it was already present
+	 * @throws IllegalArgumentException If the word is empty, or is a prefix of a
+	 *         word in the trie, or has a word in the trie as a prefix
+	 */
+	public synchronized boolean insert(String word)
+	throws IllegalArgumentException {
+		if (word.length() == 0) {
+			throw new IllegalArgumentException("can't insert an empty word");
+		}
+		Snapshot snap = current;
+		if (contains(snap, word)) {
+			return false;
+		}
+		String[] words = snap.words;
+		if (snap.size == words.length) {
+			String[] grown = new String[words.length * 2];
+			System.arraycopy(words, 0, grown, 0, snap.size);
+			words = grown;
+		}
+		// slot size is not visible through snap, so it can be written in place
+		words[snap.size] = word;
+		TrieNode children = insert(snap.root.firstChild, snap.size, words, 0, word);
+		current = new Snapshot(new TrieNode(null, children, null), words, snap.size + 1);
+		return true;
+	}
+
+	/**
+	 * Returns a copy of the given sibling chain with the word inserted under it.
+	 * Nodes off the insertion path are shared with the original chain.
+	 */
+	private static TrieNode insert(TrieNode child, int index, String[] words, int first, String word) {
+		if (child == null) {
+			Indexes indexes = new Indexes(index, first, word.length() - 1);
+			return new TrieNode(indexes, null, null);
+		}
+		String curr = words[child.substr.wordIndex];
+		if (curr.charAt(first) != word.charAt(first)) {
+			return new TrieNode(child.substr, child.firstChild,
+					insert(child.sibling, index, words, first, word));
+		}
+		int end = child.substr.endIndex, prefix = 1;
+		while (first + prefix <= end) {
+			if (first + prefix == word.length()) {
+				throw new IllegalArgumentException(word + " is a prefix of " + curr);
+			}
+			if (curr.charAt(first + prefix) != word.charAt(first + prefix)) {
+				break;
+			}
+			prefix++;
+		}
+		if (first + prefix > end) {
+			if (child.firstChild == null) {
+				throw new IllegalArgumentException(curr + " is a prefix of " + word);
+			}
+			if (end + 1 == word.length()) {
+				// the word ends where the node does, inside other words
+				throw new IllegalArgumentException(word + " is a prefix of " + curr);
+			}
+			return new TrieNode(child.substr,
+					insert(child.firstChild, index, words, end + 1, word), child.sibling);
+		}
+		// split the node where the word departs from it
+		Indexes siblingIdx = new Indexes(index, first + prefix, word.length() - 1);
+		Indexes restIdx = new Indexes(child.substr.wordIndex, first + prefix, end);
+		TrieNode rest = new TrieNode(restIdx, child.firstChild, new TrieNode(siblingIdx, null, null));
+		Indexes headIdx = new Indexes(child.substr.wordIndex, first, first + prefix - 1);
+		return new TrieNode(headIdx, rest, child.sibling);
+	}
+
+	/**
+	 * Tells whether a word is in the trie.
+	 *
+	 * @param word Word to look for
+	 * @return True if the word is in the trie, false if not
+	 */
+	public boolean contains(String word) {
+		return contains(current, word);
+	}
+
+	private static boolean contains(Snapshot snap, String word) {
+		TrieNode child = snap.root.firstChild;
+		int first = 0;
+		while (child != null) {
+			String curr = snap.words[child.substr.wordIndex];
+			if (first < word.length() && curr.charAt(first) == word.charAt(first)) {
+				int end = child.substr.endIndex;
+				if (end >= word.length() || !curr.regionMatches(first, word, first, end - first + 1)) {
+					return false;
+				}
+				if (end == word.length() - 1) {
+					return child.firstChild == null;
+				}
+				first = end + 1;
+				child = child.firstChild;
+			} else {
+				child = child.sibling;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns all words in the trie that start with the prefix. Never blocks.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Words that start with the prefix, in no particular order.
+	 *         If there is no word in the trie that has this prefix, null is returned.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		Snapshot snap = current;
+		if (snap.root.firstChild == null) {
+			return null;
+		}
+		TrieMetrics m = metrics;
+		ArrayList<TrieNode> leaves = m == null ? Trie.completionList(snap.root, snap.words, prefix)
+				: Trie.completionList(snap.root, snap.words, prefix, m);
+		if (leaves == null) {
+			return null;
+		}
+		ArrayList<String> matches = new ArrayList<String>(leaves.size());
+		for (TrieNode leaf : leaves) {
+			matches.add(snap.words[leaf.substr.wordIndex]);
+		}
+		return matches;
+	}
+
+	/**
+	 * Returns number of words in the trie.
+	 *
+	 * @return Number of words in the trie.
+	 */
+	public int size() {
+		return current.size;
+	}
+
+	/**
+	 * Starts (or, with null, stops) recording completion queries in metrics.
+	 * The metrics' shape statistics are set to those of the current trie.
+	 *
+	 * @param metrics Counters to record queries in, or null
+	 */
+	public void setMetrics(TrieMetrics metrics) {
+		this.metrics = metrics;
+		if (metrics != null) {
+			metrics.setShape(stats());
+		}
+	}
+
+	/**
+	 * Returns shape statistics of the current trie, and updates the shape
+	 * reported by the metrics being recorded, if any. Walks the whole trie.
+	 *
+	 * @return Statistics of the trie
+	 */
+	public TrieStats stats() {
+		TrieStats stats = TrieStats.of(current.root);
+		TrieMetrics m = metrics;
+		if (m != null) {
+			m.setShape(stats);
+		}
+		return stats;
+	}
+
+	/**
+	 * Returns the version of the trie, which changes whenever a word is inserted.
+	 * (The trie only grows, so its size serves as its version.)
+	 *
+	 * @return Current version of the trie
+	 */
+	public long version() {
+		return current.size;
+	}
+}
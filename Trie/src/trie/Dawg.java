@@ -0,0 +1,290 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class implements a minimal acyclic automaton (DAWG) over a set of words.
+ *
+ * Where a trie shares common prefixes, the DAWG also shares common suffixes:
+ * "paradoxal", "paradoxer" and "paradoxes" end in the same states as every
+ * other word ending in "al", "er" and "es" after an equivalent state. It is
+ * built incrementally from sorted input (Daciuk et al.): after each word, the
+ * states of the previous word that can no longer change are replaced by an
+ * equivalent state already in the automaton, if there is one.
+ *
+ * Each state also counts the words accepted below it, so that the DAWG maps
+ * every word to its position in sorted order (see index), which callers can
+ * use to look up a value stored per word.
+ *
+ */
+public class Dawg {
+
+	private static final char[] NO_LABELS = new char[0];
+	private static final State[] NO_TARGETS = new State[0];
+
+	/**
+	 * A state, with outgoing transitions sorted by label.
+	 */
+	static final class State {
+		boolean terminal;
+		char[] labels = NO_LABELS;
+		State[] targets = NO_TARGETS;
+		int count;
+
+		void add(char label, State target) {
+			int n = labels.length;
+			labels = Arrays.copyOf(labels, n + 1);
+			targets = Arrays.copyOf(targets, n + 1);
+			labels[n] = label;
+			targets[n] = target;
+		}
+
+		State next(char c) {
+			int i = Arrays.binarySearch(labels, c);
+			return i < 0 ? null : targets[i];
+		}
+
+		/*
+		 * States are equivalent if they agree on finality and have the same
+		 * transitions to the same (already minimized) states.
+		 */
+		public boolean equals(Object o) {
+			if (!(o instanceof State)) {
+				return false;
+			}
+			State s = (State)o;
+			if (terminal != s.terminal || !Arrays.equals(labels, s.labels)) {
+				return false;
+			}
+			for (int i=0; i < targets.length; i++) {
+				if (targets[i] != s.targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public int hashCode() {
+			int h = terminal ? 1 : 0;
+			for (int i=0; i < labels.length; i++) {
+				h = 31 * (31 * h + labels[i]) + System.identityHashCode(targets[i]);
+			}
+			return h;
+		}
+	}
+
+	private final State root;
+	private final int size, stateCount, transitionCount;
+
+	private Dawg(State root, int size, int stateCount, int transitionCount) {
+		this.root = root;
+		this.size = size;
+		this.stateCount = stateCount;
+		this.transitionCount = transitionCount;
+	}
+
+	/**
+	 * Builds a DAWG holding all words in the input array. The words need not be
+	 * sorted, and may repeat, or be prefixes of each other.
+	 *
+	 * @param allWords Input array of words (lowercase)
+	 * @return DAWG with all the words
+	 */
+	public static Dawg build(String[] allWords) {
+		String[] sorted = allWords.clone();
+		Arrays.sort(sorted);
+		Builder builder = new Builder();
+		for (int i=0; i < sorted.length; i++) {
+			if (i == 0 || !sorted[i].equals(sorted[i-1])) {
+				builder.add(sorted[i]);
+			}
+		}
+		return builder.finish();
+	}
+
+	/**
+	 * Builds a DAWG from words added in strictly increasing order.
+	 */
+	public static class Builder {
+
+		private final State root = new State();
+		private final HashMap<State,State> register = new HashMap<State,State>();
+		// states on the path of the previous word, not yet minimized
+		private final ArrayList<State> unchecked = new ArrayList<State>();
+		private String previous = null;
+		private int size = 0;
+
+		/**
+		 * Adds a word, which must come after all words added so far.
+		 *
+		 * @param word Word to add
+		 * @throws IllegalArgumentException If the word is not after the previous word
+		 */
+		public void add(String word)
+		throws IllegalArgumentException {
+			if (previous != null && word.compareTo(previous) <= 0) {
+				throw new IllegalArgumentException(word + " is not after " + previous);
+			}
+			int common = 0;
+			if (previous != null) {
+				int max = Math.min(word.length(), previous.length());
+				while (common < max && word.charAt(common) == previous.charAt(common)) {
+					common++;
+				}
+			}
+			minimize(common);
+			State state = common == 0 ? root : unchecked.get(common - 1);
+			for (int i=common; i < word.length(); i++) {
+				State next = new State();
+				state.add(word.charAt(i), next);
+				unchecked.add(next);
+				state = next;
+			}
+			state.terminal = true;
+			previous = word;
+			size++;
+		}
+
+		/**
+		 * Replaces the states on the previous word's path below depth with
+		 * equivalent registered states, deepest first.
+		 */
+		private void minimize(int depth) {
+			for (int i=unchecked.size()-1; i >= depth; i--) {
+				State child = unchecked.remove(i);
+				State parent = i == 0 ? root : unchecked.get(i - 1);
+				State existing = register.get(child);
+				if (existing != null) {
+					parent.targets[parent.targets.length - 1] = existing;
+				} else {
+					register.put(child, child);
+				}
+			}
+		}
+
+		/**
+		 * Minimizes the last word and returns the DAWG. The builder can't be
+		 * used after this.
+		 *
+		 * @return DAWG with all words added
+		 */
+		public Dawg finish() {
+			minimize(0);
+			int transitions = root.targets.length;
+			for (State state : register.keySet()) {
+				count(state);
+				transitions += state.targets.length;
+			}
+			count(root);
+			return new Dawg(root, size, register.size() + 1, transitions);
+		}
+
+		private static int count(State state) {
+			if (state.count == 0) {
+				int count = state.terminal ? 1 : 0;
+				for (State target : state.targets) {
+					count += count(target);
+				}
+				state.count = count;
+			}
+			return state.count;
+		}
+	}
+
+	/**
+	 * Returns the position of a word among all words in the DAWG, in sorted order.
+	 *
+	 * @param word Word to look up
+	 * @return Position of the word, or -1 if the word is not in the DAWG
+	 */
+	public int index(String word) {
+		State state = root;
+		int index = 0;
+		for (int i=0; i < word.length(); i++) {
+			if (state.terminal) {
+				index++;
+			}
+			char c = word.charAt(i);
+			int t = 0;
+			while (t < state.labels.length && state.labels[t] < c) {
+				index += state.targets[t++].count;
+			}
+			if (t == state.labels.length || state.labels[t] != c) {
+				return -1;
+			}
+			state = state.targets[t];
+		}
+		return state.terminal ? index : -1;
+	}
+
+	/**
+	 * Tells whether a word is in the DAWG.
+	 *
+	 * @param word Word to look for
+	 * @return True if the word is in the DAWG, false if not
+	 */
+	public boolean contains(String word) {
+		return index(word) >= 0;
+	}
+
+	/**
+	 * Returns all words in the DAWG that start with the prefix, in sorted order.
+	 * (A prefix can be an entire word.)
+	 *
+	 * @param prefix Prefix to be completed with words in the DAWG
+	 * @return Words that start with the prefix.
+	 *         If there is no word in the DAWG that has this prefix, null is returned.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		State state = root;
+		for (int i=0; i < prefix.length() && state != null; i++) {
+			state = state.next(prefix.charAt(i));
+		}
+		if (state == null) {
+			return null;
+		}
+		ArrayList<String> matches = new ArrayList<String>(state.count);
+		addWords(state, new StringBuilder(prefix), matches);
+		return matches;
+	}
+
+	private static void addWords(State state, StringBuilder word, ArrayList<String> matches) {
+		if (state.terminal) {
+			matches.add(word.toString());
+		}
+		for (int i=0; i < state.labels.length; i++) {
+			word.append(state.labels[i]);
+			addWords(state.targets[i], word, matches);
+			word.setLength(word.length() - 1);
+		}
+	}
+
+	/**
+	 * Returns number of words in the DAWG.
+	 *
+	 * @return Number of words
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns number of states, including the start state.
+	 *
+	 * @return Number of states
+	 */
+	public int stateCount() {
+		return stateCount;
+	}
+
+	/**
+	 * Returns number of transitions between states.
+	 *
+	 * @return Number of transitions
+	 */
+	public int transitionCount() {
+		return transitionCount;
+	}
+}
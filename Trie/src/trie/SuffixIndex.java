@@ -0,0 +1,223 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class implements a generalized suffix array over a collection of words,
+ * for "contains" search: finding all words that contain a pattern anywhere,
+ * not just at the start.
+ *
+ * Every suffix of every word is referenced, like the trie's Indexes, by a
+ * (word index, start index) pair into the words; the pairs are sorted in the
+ * order of the suffixes they reference, and lcp[i] holds the length of the
+ * longest common prefix of the i-th and (i-1)-th suffixes. A query finds the
+ * first suffix starting with the pattern by binary search, skipping characters
+ * already known to match either bound, then walks forward while lcp is at
+ * least the pattern length, so it costs about (pattern length + log of total
+ * characters + number of matches).
+ *
+ * The index takes 12 bytes per character of the words, in three int arrays.
+ *
+ */
+public class SuffixIndex {
+
+	/**
+	 * Ranges at most this long are sorted by insertion sort
+	 */
+	private static final int INSERTION_SORT = 12;
+
+	private final WordSource words;
+
+	/**
+	 * Word index and start index of each suffix, in sorted order of suffixes
+	 */
+	private final int[] suffixWord, suffixStart;
+
+	/**
+	 * Longest common prefix of each suffix with the one before it
+	 */
+	private final int[] lcp;
+
+	/**
+	 * Builds a suffix index over the words in the input array.
+	 *
+	 * @param allWords Input array of words
+	 */
+	public SuffixIndex(String[] allWords) {
+		this(new Trie.StringArray(allWords));
+	}
+
+	/**
+	 * Builds a suffix index over the words in an arena.
+	 *
+	 * @param arena Arena of words
+	 */
+	public SuffixIndex(WordArena arena) {
+		this((WordSource)arena);
+	}
+
+	private SuffixIndex(WordSource words) {
+		this.words = words;
+		long total = 0;
+		for (int w=0; w < words.size(); w++) {
+			total += words.length(w);
+		}
+		if (total > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("too many characters for a suffix index");
+		}
+		int n = (int)total;
+		int[] sw = new int[n], ss = new int[n];
+		int k = 0;
+		for (int w=0; w < words.size(); w++) {
+			for (int i=0; i < words.length(w); i++) {
+				sw[k] = w;
+				ss[k++] = i;
+			}
+		}
+		suffixWord = sw;
+		suffixStart = ss;
+		sort(0, n, 0);
+		lcp = new int[n];
+		for (int i=1; i < n; i++) {
+			int len = 0;
+			while (charAt(i-1, len) >= 0 && charAt(i-1, len) == charAt(i, len)) {
+				len++;
+			}
+			lcp[i] = len;
+		}
+	}
+
+	/**
+	 * Returns character d of the i-th suffix, or -1 past its end.
+	 */
+	private int charAt(int i, int d) {
+		int w = suffixWord[i], pos = suffixStart[i] + d;
+		return pos < words.length(w) ? words.charAt(w, pos) : -1;
+	}
+
+	private void swap(int i, int j) {
+		int t = suffixWord[i]; suffixWord[i] = suffixWord[j]; suffixWord[j] = t;
+		t = suffixStart[i]; suffixStart[i] = suffixStart[j]; suffixStart[j] = t;
+	}
+
+	/**
+	 * Sorts suffixes lo..hi-1, which agree on their first d characters, by
+	 * three-way radix quicksort (Bentley-Sedgewick). Only the smaller and larger
+	 * partitions recurse; the equal partition moves on to the next character.
+	 */
+	private void sort(int lo, int hi, int d) {
+		while (hi - lo > INSERTION_SORT) {
+			int mid = (lo + hi) >>> 1;
+			int a = charAt(lo, d), b = charAt(mid, d), c = charAt(hi-1, d);
+			int pivot = a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+			int lt = lo, gt = hi - 1, i = lo;
+			while (i <= gt) {
+				int ch = charAt(i, d);
+				if (ch < pivot) {
+					swap(lt++, i++);
+				} else if (ch > pivot) {
+					swap(i, gt--);
+				} else {
+					i++;
+				}
+			}
+			sort(lo, lt, d);
+			sort(gt + 1, hi, d);
+			if (pivot < 0) {
+				// suffixes that have all ended are equal
+				return;
+			}
+			lo = lt;
+			hi = gt + 1;
+			d++;
+		}
+		for (int i=lo+1; i < hi; i++) {
+			for (int j=i; j > lo && compare(j, j-1, d) < 0; j--) {
+				swap(j, j-1);
+			}
+		}
+	}
+
+	private int compare(int i, int j, int d) {
+		while (true) {
+			int a = charAt(i, d), b = charAt(j, d);
+			if (a != b || a < 0) {
+				return a - b;
+			}
+			d++;
+		}
+	}
+
+	/**
+	 * Returns the indexes of all words that contain the pattern, in increasing order.
+	 *
+	 * @param pattern Pattern to search for
+	 * @return Indexes of matching words, empty if there are none
+	 */
+	public int[] wordIndexes(String pattern) {
+		int m = pattern.length(), n = suffixWord.length;
+		if (m == 0) {
+			int[] all = new int[words.size()];
+			for (int w=0; w < all.length; w++) {
+				all[w] = w;
+			}
+			return all;
+		}
+		// invariant: suffixes <= left are less than pattern, suffixes >= right are not;
+		// the pattern agrees with them on their first l and r characters
+		int left = -1, right = n, l = 0, r = 0;
+		while (right - left > 1) {
+			int mid = (left + right) >>> 1;
+			int k = Math.min(l, r);
+			int ch = 0;
+			while (k < m && (ch = charAt(mid, k)) == pattern.charAt(k)) {
+				k++;
+			}
+			if (k == m || pattern.charAt(k) < ch) {
+				right = mid;
+				r = k;
+			} else {
+				left = mid;
+				l = k;
+			}
+		}
+		if (right == n || r < m) {
+			return new int[0];
+		}
+		int end = right + 1;
+		while (end < n && lcp[end] >= m) {
+			end++;
+		}
+		int[] found = Arrays.copyOfRange(suffixWord, right, end);
+		Arrays.sort(found);
+		int distinct = 0;
+		for (int i=0; i < found.length; i++) {
+			if (i == 0 || found[i] != found[i-1]) {
+				found[distinct++] = found[i];
+			}
+		}
+		return Arrays.copyOf(found, distinct);
+	}
+
+	/**
+	 * Returns all words that contain the pattern. For instance, if the words
+	 * were "paradox", "paradoxer", and "adobe", words containing "adox" would be
+	 * "paradox" and "paradoxer".
+	 *
+	 * @param pattern Pattern to search for
+	 * @return Words that contain the pattern, in the order they were given.
+	 *         If no word contains the pattern, null is returned.
+	 */
+	public ArrayList<String> containing(String pattern) {
+		int[] found = wordIndexes(pattern);
+		if (found.length == 0) {
+			return null;
+		}
+		ArrayList<String> matches = new ArrayList<String>(found.length);
+		for (int w : found) {
+			matches.add(words.get(w));
+		}
+		return matches;
+	}
+}
@@ -1,6 +1,11 @@
 package trie;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * This class implements a Trie. 
@@ -13,6 +18,18 @@ public class Trie {
 	// prevent instantiation
 	private Trie() { }
 	
+	/**
+	 * Word source over a caller-supplied array of Strings
+	 */
+	static final class StringArray implements WordSource {
+		final String[] words;
+		StringArray(String[] words) { this.words = words; }
+		public char charAt(int wordIndex, int i) { return words[wordIndex].charAt(i); }
+		public int length(int wordIndex) { return words[wordIndex].length(); }
+		public String get(int wordIndex) { return words[wordIndex]; }
+		public int size() { return words.length; }
+	}
+	
 	/**
 	 * Builds a trie by inserting all words in the input array, one at a time,
 	 * in sequence FROM FIRST TO LAST. (The sequence is IMPORTANT!)
@@ -22,19 +39,133 @@ public class Trie {
 	 * @return Root of trie with all words inserted from the input array
 	 */
 	public static TrieNode buildTrie(String[] allWords) {
+		return buildTrie(new StringArray(allWords));
+	}
+	
+	/**
+	 * Builds a trie by inserting all words in the arena, in arena order.
+	 * The trie's nodes index into the arena, which must not be dropped 
+	 * while the trie is in use.
+	 * 
+	 * @param arena Arena of words (lowercase) to be inserted.
+	 * @return Root of trie with all words in the arena inserted
+	 */
+	public static TrieNode buildTrie(WordArena arena) {
+		return buildTrie((WordSource)arena);
+	}
+	
+	private static TrieNode buildTrie(WordSource words) {
 		
 		TrieNode root = new TrieNode(null,null,null);
-		int index = 0;
-		for(String word : allWords) {
-			addWord(root, index++, allWords, 0, word);
+		for(int index = 0; index < words.size(); index++) {
+			addWord(root, index, words, 0);
 		}
 		return root;
 	}
 	
-	private static void addWord(TrieNode input, int index, String [] words, int first, String word) {
+	/**
+	 * Word count below which buildTrieParallel just builds sequentially
+	 */
+	private static final int PARALLEL_THRESHOLD = 10000;
+	
+	/**
+	 * Builds the same trie as buildTrie, using all available cores. 
+	 * Words are partitioned by their first character. Since the subtrie under
+	 * each child of the root only depends on the words that start with that
+	 * child's character, in input order, the subtries are built independently 
+	 * on the common fork-join pool, and then linked under the root in order of
+	 * first appearance, which is where sequential insertion would put them.
+	 * 
+	 * @param allWords Input array of words (lowercase) to be inserted.
+	 * @return Root of trie with all words inserted from the input array
+	 */
+	public static TrieNode buildTrieParallel(String[] allWords) {
+		return buildTrieParallel(new StringArray(allWords));
+	}
+	
+	/**
+	 * Builds the same trie as buildTrie(arena), using all available cores.
+	 * 
+	 * @param arena Arena of words (lowercase) to be inserted.
+	 * @return Root of trie with all words in the arena inserted
+	 */
+	public static TrieNode buildTrieParallel(WordArena arena) {
+		return buildTrieParallel((WordSource)arena);
+	}
+	
+	private static TrieNode buildTrieParallel(WordSource words) {
+		int numWords = words.size();
+		if (numWords < PARALLEL_THRESHOLD) {
+			return buildTrie(words);
+		}
+		// group number (plus one) of each first character, in order of first appearance
+		int[] groupOf = new int[Character.MAX_VALUE + 1];
+		int[] counts = new int[64];
+		int groups = 0;
+		for (int i=0; i < numWords; i++) {
+			char c = words.charAt(i, 0);
+			if (groupOf[c] == 0) {
+				if (groups == counts.length) {
+					counts = Arrays.copyOf(counts, groups * 2);
+				}
+				groupOf[c] = ++groups;
+			}
+			counts[groupOf[c] - 1]++;
+		}
+		// stable counting sort of word indexes by group
+		int[] starts = new int[groups + 1];
+		for (int g=0; g < groups; g++) {
+			starts[g+1] = starts[g] + counts[g];
+		}
+		int[] order = new int[numWords], fill = Arrays.copyOf(starts, groups);
+		for (int i=0; i < numWords; i++) {
+			order[fill[groupOf[words.charAt(i, 0)] - 1]++] = i;
+		}
+		
+		TrieNode[] subtries = new TrieNode[groups];
+		ForkJoinPool.commonPool().invoke(new SubtrieBuilder(words, order, starts, subtries, 0, groups));
+		for (int g=0; g < groups-1; g++) {
+			subtries[g].sibling = subtries[g+1];
+		}
+		return new TrieNode(null, subtries[0], null);
+	}
+	
+	/**
+	 * Builds the subtries for a range of first-character groups, splitting the
+	 * range in half until there is one group per task.
+	 */
+	private static class SubtrieBuilder extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final WordSource words;
+		final int[] order, starts;
+		final TrieNode[] subtries;
+		final int lo, hi;
+		
+		SubtrieBuilder(WordSource words, int[] order, int[] starts, TrieNode[] subtries, int lo, int hi) {
+			this.words = words; this.order = order; this.starts = starts;
+			this.subtries = subtries; this.lo = lo; this.hi = hi;
+		}
+		
+		protected void compute() {
+			if (hi - lo > 1) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new SubtrieBuilder(words, order, starts, subtries, lo, mid),
+						new SubtrieBuilder(words, order, starts, subtries, mid, hi));
+				return;
+			}
+			TrieNode root = new TrieNode(null, null, null);
+			for (int i=starts[lo]; i < starts[lo+1]; i++) {
+				addWord(root, order[i], words, 0);
+			}
+			subtries[lo] = root.firstChild;
+		}
+	}
+	
+	private static void addWord(TrieNode input, int index, WordSource words, int first) {
+		int length = words.length(index);
 		//need a base case
 		if(input.firstChild == null) {
-			Indexes indexes = new Indexes(index, (short)first, (short)(word.length()- 1 + first));
+			Indexes indexes = new Indexes(index, first, length - 1 + first);
 			input.firstChild = new TrieNode(indexes, null, null);
 			return;
 		}
@@ -44,22 +175,22 @@ public class Trie {
 		//need to compare the prefixes
 		int prefix = 0;
 		while(child != null) {
-			if(words[child.substr.wordIndex].charAt(first) == word.charAt(first)) {
-				while(words[child.substr.wordIndex].charAt(first+prefix) == word.charAt(first+prefix)) {
+			if(words.charAt(child.substr.wordIndex, first) == words.charAt(index, first)) {
+				while(words.charAt(child.substr.wordIndex, first+prefix) == words.charAt(index, first+prefix)) {
 					if(child.substr.endIndex == first + prefix) {
-						addWord(child, index, words, first + prefix + 1, word);
+						addWord(child, index, words, first + prefix + 1);
 						return;
 					}
 					prefix++;
 				}
 				//creating new Nodes indices to build children/siblings once loop breaks
 				int endIndex = child.substr.endIndex;
-				Indexes indexes = new Indexes(child.substr.wordIndex, (short)first, (short)(prefix - 1 + first));
+				Indexes indexes = new Indexes(child.substr.wordIndex, first, prefix - 1 + first);
 				child.substr = indexes;
-				Indexes newIndexes = new Indexes(child.substr.wordIndex, (short) (prefix + first), (short) endIndex);
+				Indexes newIndexes = new Indexes(child.substr.wordIndex, prefix + first, endIndex);
 				TrieNode newNode = new TrieNode(newIndexes, child.firstChild, null);
 				child.firstChild = newNode;
-				Indexes siblingIdx = new Indexes(index, (short)(prefix + first), (short) (word.length() - 1) );
+				Indexes siblingIdx = new Indexes(index, prefix + first, length - 1);
 				TrieNode siblingNode = new TrieNode(siblingIdx, null, null);
 				newNode.sibling = siblingNode;
 				return;
@@ -69,7 +200,7 @@ public class Trie {
 			}
 			child = child.sibling;
 		}
-		 Indexes indexes = new Indexes(index, (short)first, (short)(word.length()-1));
+		 Indexes indexes = new Indexes(index, first, length - 1);
 	        lastChild.sibling = new TrieNode(indexes, null, null);
 	}
 	/**
@@ -93,29 +224,85 @@ public class Trie {
 	public static ArrayList<TrieNode> completionList(TrieNode root,
 										String[] allWords, String prefix) {
 		ArrayList<TrieNode> end = new ArrayList<TrieNode>();
-		return comparePre(root, allWords, prefix, end);
+		return comparePre(root, new StringArray(allWords), prefix, end, null);
+	}
+	
+	/**
+	 * Given a trie, returns the "completion list" for a prefix, same as 
+	 * completionList(root, allWords, prefix), and records the number of nodes
+	 * visited, the number of leaves returned, and the time taken in metrics.
+	 *
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param metrics Counters to record the query in
+	 * @return List of all leaf nodes in trie that hold words that start with the prefix, 
+	 * 			order of leaf nodes does not matter.
+	 *         If there is no word in the tree that has this prefix, null is returned.
+	 */
+	public static ArrayList<TrieNode> completionList(TrieNode root,
+										String[] allWords, String prefix, TrieMetrics metrics) {
+		long start = System.nanoTime();
+		int[] visited = new int[1];
+		ArrayList<TrieNode> end = comparePre(root, new StringArray(allWords), prefix, 
+				new ArrayList<TrieNode>(), visited);
+		metrics.record(visited[0], end == null ? 0 : end.size(), System.nanoTime() - start);
+		return end;
+	}
+	
+	/**
+	 * Given a trie built on an arena, returns the "completion list" for a prefix.
+	 * Same as completionList(root, allWords, prefix), with words held in the arena.
+	 * 
+	 * @param root Root of Trie built on the arena
+	 * @param arena Arena of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return List of all leaf nodes in trie that hold words that start with the prefix, 
+	 * 			order of leaf nodes does not matter.
+	 *         If there is no word in the tree that has this prefix, null is returned.
+	 */
+	public static ArrayList<TrieNode> completionList(TrieNode root,
+										WordArena arena, String prefix) {
+		ArrayList<TrieNode> end = new ArrayList<TrieNode>();
+		return comparePre(root, arena, prefix, end, null);
 	}
 	
-	private static ArrayList<TrieNode> comparePre(TrieNode root, String[] allWords, String prefix, ArrayList<TrieNode> end){
+	/**
+	 * Tells if the prefix and a word in the trie agree from index from up to, not including, to.
+	 */
+	private static boolean regionMatches(WordSource words, int wordIndex, String prefix, int from, int to) {
+		for (int i=from; i < to; i++) {
+			if (prefix.charAt(i) != words.charAt(wordIndex, i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/*
+	 * visited, if not null, counts nodes looked at in visited[0]
+	 */
+	private static ArrayList<TrieNode> comparePre(TrieNode root, WordSource allWords, String prefix, ArrayList<TrieNode> end, int[] visited){
 		TrieNode child = root.firstChild;
 		while(child != null) {
+			if(visited != null) visited[0]++;
 			Indexes index = child.substr;
 			int startIndex = index.startIndex, endIndex = index.endIndex + 1;
-			String curr = allWords[index.wordIndex];
-			if(prefix.charAt(startIndex) == curr.charAt(startIndex)) {
+			int curr = index.wordIndex;
+			if(prefix.charAt(startIndex) == allWords.charAt(curr, startIndex)) {
 				if(prefix.length() < endIndex + 1) {
-					if(prefix.substring(startIndex).equals(curr.substring(startIndex, prefix.length()))) {
+					if(regionMatches(allWords, curr, prefix, startIndex, prefix.length())) {
 						if(child.firstChild == null) {
 							end.add(child);
 							return end;
 						}
-						addChildorSib(child.firstChild, end);
+						addChildorSib(child.firstChild, end, visited);
 						return end;
 					}
 					else return null;
 				}
 				else {
-					if(curr.substring(startIndex,endIndex).equals(prefix.substring(startIndex, endIndex))) return comparePre(child, allWords, prefix, end);
+					if(regionMatches(allWords, curr, prefix, startIndex, endIndex)) return comparePre(child, allWords, prefix, end, visited);
 					else return null;
 				}
 			}
@@ -125,26 +312,312 @@ public class Trie {
 		return null;
 	}
 	
-	private static void addChildorSib(TrieNode root, ArrayList<TrieNode> list) {
+	/**
+	 * Prefix count above which completionLists splits the sweep across cores
+	 */
+	private static final int BATCH_PARALLEL_THRESHOLD = 4096;
+	
+	/**
+	 * Given a trie, returns the completion lists for many prefixes at once.
+	 * The result for each prefix is the same as completionList's, except that 
+	 * the empty prefix completes to every word.
+	 * 
+	 * The prefixes are sorted, so that consecutive prefixes share their longest 
+	 * common prefix, and each prefix resumes the descent of the previous one at the
+	 * deepest node both fully match, instead of starting over at the root. Large 
+	 * batches are cut into runs that are swept in parallel.
+	 *
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefixes Prefixes to be completed with words in trie
+	 * @return Map from each distinct prefix to its list of leaf nodes, or to null
+	 *         if there is no word in the tree that has this prefix.
+	 */
+	public static HashMap<String,ArrayList<TrieNode>> completionLists(TrieNode root,
+										String[] allWords, Collection<String> prefixes) {
+		return completionLists(root, new StringArray(allWords), prefixes);
+	}
+	
+	/**
+	 * Given a trie built on an arena, returns the completion lists for many prefixes 
+	 * at once. Same as completionLists(root, allWords, prefixes), with words held 
+	 * in the arena.
+	 *
+	 * @param root Root of Trie built on the arena
+	 * @param arena Arena of words that have been inserted into the trie
+	 * @param prefixes Prefixes to be completed with words in trie
+	 * @return Map from each distinct prefix to its list of leaf nodes, or to null
+	 *         if there is no word in the tree that has this prefix.
+	 */
+	public static HashMap<String,ArrayList<TrieNode>> completionLists(TrieNode root,
+										WordArena arena, Collection<String> prefixes) {
+		return completionLists(root, (WordSource)arena, prefixes);
+	}
+	
+	/**
+	 * Same as completionLists(root, allWords, prefixes), swept on the calling
+	 * thread only, counting the nodes looked at in visited[0] as completionList
+	 * does with metrics.
+	 */
+	static HashMap<String,ArrayList<TrieNode>> completionLists(TrieNode root,
+										String[] allWords, Collection<String> prefixes, int[] visited) {
+		return completionLists(root, new StringArray(allWords), prefixes, visited);
+	}
+	
+	private static HashMap<String,ArrayList<TrieNode>> completionLists(TrieNode root,
+										WordSource allWords, Collection<String> prefixes) {
+		return completionLists(root, allWords, prefixes, null);
+	}
+	
+	private static HashMap<String,ArrayList<TrieNode>> completionLists(TrieNode root,
+										WordSource allWords, Collection<String> prefixes, int[] visited) {
+		String[] sorted = prefixes.toArray(new String[prefixes.size()]);
+		Arrays.sort(sorted);
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		ArrayList<TrieNode>[] results = new ArrayList[sorted.length];
+		if (visited != null || sorted.length < BATCH_PARALLEL_THRESHOLD) {
+			sweep(root, allWords, sorted, 0, sorted.length, results, visited);
+		} else {
+			ForkJoinPool.commonPool().invoke(new BatchSweep(root, allWords, sorted, results, 0, sorted.length));
+		}
+		HashMap<String,ArrayList<TrieNode>> lists = new HashMap<String,ArrayList<TrieNode>>(sorted.length * 2);
+		for (int i=0; i < sorted.length; i++) {
+			lists.put(sorted[i], results[i]);
+		}
+		return lists;
+	}
+	
+	/**
+	 * Sweeps a range of the sorted prefixes, splitting it in half until it is
+	 * small enough to sweep sequentially.
+	 */
+	private static class BatchSweep extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final TrieNode root;
+		final WordSource words;
+		final String[] sorted;
+		final ArrayList<TrieNode>[] results;
+		final int lo, hi;
+		
+		BatchSweep(TrieNode root, WordSource words, String[] sorted, ArrayList<TrieNode>[] results, int lo, int hi) {
+			this.root = root; this.words = words; this.sorted = sorted;
+			this.results = results; this.lo = lo; this.hi = hi;
+		}
+		
+		protected void compute() {
+			if (hi - lo > BATCH_PARALLEL_THRESHOLD / 4) {
+				int mid = (lo + hi) >>> 1;
+				invokeAll(new BatchSweep(root, words, sorted, results, lo, mid),
+						new BatchSweep(root, words, sorted, results, mid, hi));
+				return;
+			}
+			sweep(root, words, sorted, lo, hi, results, null);
+		}
+	}
+	
+	/**
+	 * Completes sorted[lo..hi-1] into results, keeping the path of nodes whose
+	 * substrings the previous prefix fully matched (and went past).
+	 * visited, if not null, counts nodes looked at in visited[0]
+	 */
+	private static void sweep(TrieNode root, WordSource allWords, String[] sorted, int lo, int hi,
+										ArrayList<TrieNode>[] results, int[] visited) {
+		TrieNode[] path = new TrieNode[16];
+		int depth = 0;
+		String previous = null;
+		for (int i=lo; i < hi; i++) {
+			String prefix = sorted[i];
+			if (prefix.equals(previous)) {
+				results[i] = results[i-1];
+				continue;
+			}
+			int common = 0;
+			if (previous != null) {
+				int max = Math.min(prefix.length(), previous.length());
+				while (common < max && prefix.charAt(common) == previous.charAt(common)) {
+					common++;
+				}
+			}
+			previous = prefix;
+			// keep the nodes this prefix also fully matches and goes past
+			while (depth > 0) {
+				int end = path[depth-1].substr.endIndex + 1;
+				if (end <= common && end < prefix.length()) {
+					break;
+				}
+				depth--;
+			}
+			if (prefix.length() == 0) {
+				ArrayList<TrieNode> all = new ArrayList<TrieNode>();
+				addChildorSib(root.firstChild, all, visited);
+				results[i] = all.isEmpty() ? null : all;
+				continue;
+			}
+			TrieNode node = depth == 0 ? root : path[depth-1];
+			TrieNode child = node.firstChild;
+			ArrayList<TrieNode> result = null;
+			while (child != null) {
+				if (visited != null) visited[0]++;
+				Indexes index = child.substr;
+				int startIndex = index.startIndex, endIndex = index.endIndex + 1;
+				if (prefix.charAt(startIndex) != allWords.charAt(index.wordIndex, startIndex)) {
+					child = child.sibling;
+					continue;
+				}
+				if (prefix.length() <= endIndex) {
+					if (regionMatches(allWords, index.wordIndex, prefix, startIndex, prefix.length())) {
+						result = new ArrayList<TrieNode>();
+						if (child.firstChild == null) {
+							result.add(child);
+						} else {
+							addChildorSib(child.firstChild, result, visited);
+						}
+					}
+					break;
+				}
+				if (!regionMatches(allWords, index.wordIndex, prefix, startIndex, endIndex)) {
+					break;
+				}
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, depth * 2);
+				}
+				path[depth++] = child;
+				child = child.firstChild;
+			}
+			results[i] = result;
+		}
+	}
+	
+	/**
+	 * Given a trie, returns the leaf nodes of all words that start with some string 
+	 * within maxEdits edits (insertions, deletions, substitutions) of the prefix.
+	 * For instance, with maxEdits 1, prefix "bel" completes to "bear" and "bull"
+	 * as well as "bell".
+	 * 
+	 * The trie is walked depth first, keeping one row of the Levenshtein table of
+	 * the prefix against the characters on the path. Words that share a path share
+	 * its rows, and a subtree is skipped as soon as every entry in the row exceeds 
+	 * maxEdits, so only the part of the trie near the prefix is visited.
+	 *
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param maxEdits Maximum number of edits between prefix and start of word
+	 * @return List of all leaf nodes in trie that hold matching words, 
+	 * 			order of leaf nodes does not matter.
+	 *         If there is no matching word in the tree, null is returned.
+	 */
+	public static ArrayList<TrieNode> fuzzyCompletions(TrieNode root, 
+										String[] allWords, String prefix, int maxEdits) {
+		return fuzzyCompletions(root, new StringArray(allWords), prefix, maxEdits);
+	}
+	
+	/**
+	 * Given a trie built on an arena, returns the leaf nodes of all words that start 
+	 * with some string within maxEdits edits of the prefix. Same as 
+	 * fuzzyCompletions(root, allWords, prefix, maxEdits), with words held in the arena.
+	 *
+	 * @param root Root of Trie built on the arena
+	 * @param arena Arena of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param maxEdits Maximum number of edits between prefix and start of word
+	 * @return List of all leaf nodes in trie that hold matching words, 
+	 * 			order of leaf nodes does not matter.
+	 *         If there is no matching word in the tree, null is returned.
+	 */
+	public static ArrayList<TrieNode> fuzzyCompletions(TrieNode root, 
+										WordArena arena, String prefix, int maxEdits) {
+		return fuzzyCompletions(root, (WordSource)arena, prefix, maxEdits);
+	}
+	
+	private static ArrayList<TrieNode> fuzzyCompletions(TrieNode root, 
+										WordSource allWords, String prefix, int maxEdits) {
+		ArrayList<TrieNode> end = new ArrayList<TrieNode>();
+		int[][] rows = new int[16][prefix.length() + 1];
+		for (int j=0; j <= prefix.length(); j++) {
+			rows[0][j] = j;
+		}
+		if (prefix.length() <= maxEdits) {
+			addChildorSib(root.firstChild, end, null);
+		} else {
+			fuzzy(root.firstChild, allWords, prefix, maxEdits, rows, end);
+		}
+		return end.isEmpty() ? null : end;
+	}
+	
+	private static void fuzzy(TrieNode child, WordSource allWords, String prefix, int maxEdits,
+										int[][] rows, ArrayList<TrieNode> end) {
+		int m = prefix.length();
+		for (; child != null; child = child.sibling) {
+			int curr = child.substr.wordIndex;
+			int endIndex = child.substr.endIndex;
+			boolean matched = false, pruned = false;
+			for (int d=child.substr.startIndex; d <= endIndex; d++) {
+				if (d + 1 == rows.length) {
+					rows = Arrays.copyOf(rows, rows.length * 2);
+				}
+				if (rows[d+1] == null) {
+					rows[d+1] = new int[m + 1];
+				}
+				int[] prev = rows[d], row = rows[d+1];
+				char c = allWords.charAt(curr, d);
+				row[0] = d + 1;
+				int min = row[0];
+				for (int j=1; j <= m; j++) {
+					int cost = prev[j-1] + (prefix.charAt(j-1) == c ? 0 : 1);
+					row[j] = Math.min(cost, Math.min(prev[j], row[j-1]) + 1);
+					min = Math.min(min, row[j]);
+				}
+				if (row[m] <= maxEdits) {
+					matched = true;
+					break;
+				}
+				if (min > maxEdits) {
+					pruned = true;
+					break;
+				}
+			}
+			if (matched) {
+				if (child.firstChild == null) {
+					end.add(child);
+				} else {
+					addChildorSib(child.firstChild, end, null);
+				}
+			} else if (!pruned) {
+				fuzzy(child.firstChild, allWords, prefix, maxEdits, rows, end);
+			}
+		}
+	}
+	
+	private static void addChildorSib(TrieNode root, ArrayList<TrieNode> list, int[] visited) {
 		while(root != null) {
+			if(visited != null) visited[0]++;
 			if(root.firstChild == null) {
 				list.add(root);
 			}
 			if(root.firstChild != null ) {
-				addChildorSib(root.firstChild, list);
+				addChildorSib(root.firstChild, list, visited);
 			} if(root.sibling != null){
-				addChildorSib(root.sibling, list);
+				addChildorSib(root.sibling, list, visited);
 			}
 			break;
 		}
 	}
 	
 	public static void print(TrieNode root, String[] allWords) {
+		print(root, new StringArray(allWords));
+	}
+	
+	public static void print(TrieNode root, WordArena arena) {
+		print(root, (WordSource)arena);
+	}
+	
+	private static void print(TrieNode root, WordSource allWords) {
 		System.out.println("\nTRIE\n");
 		print(root, 1, allWords);
 	}
 	
-	private static void print(TrieNode root, int indent, String[] words) {
+	private static void print(TrieNode root, int indent, WordSource words) {
 		if (root == null) {
 			return;
 		}
@@ -153,7 +626,7 @@ public class Trie {
 		}
 		
 		if (root.substr != null) {
-			String pre = words[root.substr.wordIndex]
+			String pre = words.get(root.substr.wordIndex)
 							.substring(0, root.substr.endIndex+1);
 			System.out.println("      " + pre);
 		}
@@ -3,6 +3,7 @@ package trie;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Locale;
 import java.util.Scanner;
 
 public class TrieApp {
@@ -13,15 +14,12 @@ public class TrieApp {
 	throws IOException {
 		System.out.print("Enter words file name => ");
 		String wordsFile = stdin.nextLine();
-		Scanner sc = new Scanner(new File(wordsFile));
-		// words appear one per line in input file
-		// first line has number of words
-		int numWords = Integer.parseInt(sc.nextLine());
-		String[] allWords = new String[numWords];
-		for (int i=0; i < allWords.length; i++) {
-			allWords[i] = sc.nextLine().trim().toLowerCase();
+		if (wordsFile.endsWith(TrieImage.SUFFIX)) {
+			// serve completions straight from a mapped trie image
+			completionLists(TrieImage.open(new File(wordsFile)));
+			return;
 		}
-		sc.close();
+		WordArena allWords = readWords(new File(wordsFile));
 		
 		// build Trie
 		TrieNode root = Trie.buildTrie(allWords);
@@ -31,25 +29,54 @@ public class TrieApp {
 		completionLists(root, allWords);
 	}
 	
-	private static void completionLists(TrieNode root, String[] allWords) {
+	/**
+	 * Reads a words file. Words appear one per line, and the first line
+	 * has the number of words: that many lines are read. Blank lines among
+	 * them are skipped, since an empty word can't go in a trie.
+	 * 
+	 * @param file Words file
+	 * @return Words in the file, trimmed and in lower case
+	 * @throws IOException If the file can't be read
+	 */
+	static WordArena readWords(File file) 
+	throws IOException {
+		return WordLoader.load(file, true);
+	}
+	
+	private static void completionLists(TrieImage image) {
+		System.out.print("\ncompletion list for (enter prefix, or 'quit'): ");
+		String prefix = stdin.nextLine().trim().toLowerCase(Locale.ROOT);
+		while (!"quit".equals(prefix)) {
+			ArrayList<String> matches = image.completionList(prefix);
+			if (matches == null) {
+				System.out.println("No match");
+			} else {
+				System.out.println(String.join(",", matches));
+			}
+			System.out.print("\ncompletion list for: ");
+			prefix = stdin.nextLine().trim().toLowerCase(Locale.ROOT);
+		}
+	}
+	
+	private static void completionLists(TrieNode root, WordArena allWords) {
 		System.out.print("\ncompletion list for (enter prefix, or 'quit'): ");
-		String prefix = stdin.nextLine().trim().toLowerCase();
+		String prefix = stdin.nextLine().trim().toLowerCase(Locale.ROOT);
 		while (!"quit".equals(prefix)) {
 			ArrayList<TrieNode> matches = Trie.completionList(root, allWords, prefix);
 			printMatches(matches, allWords);
 			System.out.print("\ncompletion list for: ");
-			prefix = stdin.nextLine().trim().toLowerCase();
+			prefix = stdin.nextLine().trim().toLowerCase(Locale.ROOT);
 		}
 	}
 	
-	private static void printMatches(ArrayList<TrieNode> matches, String[] allWords) {
+	private static void printMatches(ArrayList<TrieNode> matches, WordArena allWords) {
 		if (matches == null) {
 			System.out.println("No match");
 			return;
 		}
-		System.out.print(allWords[matches.get(0).substr.wordIndex]);
+		System.out.print(allWords.get(matches.get(0).substr.wordIndex));
 		for (int i=1; i < matches.size(); i++) {
-			System.out.print(","+allWords[matches.get(i).substr.wordIndex]);
+			System.out.print(","+allWords.get(matches.get(i).substr.wordIndex));
 		}
 		System.out.println();
 	}
@@ -0,0 +1,768 @@
+package trie;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line benchmarks for the trie classes, run on synthetic dictionaries.
+ * The suite mode is the baseline to compare trie changes against; the other
+ * modes each exercise one class.
+ *
+ * Usage: java trie.TrieBench suite [maxWords] [prefixDepth] [wordsFile]
+ *        java trie.TrieBench concurrent [words] [readers] [seconds]
+ *        java trie.TrieBench build [words]
+ *        java trie.TrieBench fuzzy [words] [queries]
+ *        java trie.TrieBench dawg [words]
+ *        java trie.TrieBench arena [words]
+ *        java trie.TrieBench batch [words] [prefixes]
+ *        java trie.TrieBench suffix [words] [queries]
+ *        java trie.TrieBench cache [words] [queries] [capacity]
+ *        java trie.TrieBench stats [words] [queries]
+ *        java trie.TrieBench load [lines] [file]
+ *        java trie.TrieBench unicode [words] [queries]
+ *
+ */
+public class TrieBench {
+
+	public static void main(String[] args)
+	throws InterruptedException, IOException {
+		String mode = args.length > 0 ? args[0] : "suite";
+		if ("suite".equals(mode)) {
+			suite(intArg(args, 1, 1000000), intArg(args, 2, 3), args.length > 3 ? args[3] : null);
+		} else if ("concurrent".equals(mode)) {
+			int numWords = intArg(args, 1, 200000);
+			int readers = intArg(args, 2, Runtime.getRuntime().availableProcessors());
+			int seconds = intArg(args, 3, 5);
+			concurrent(numWords, readers, seconds);
+		} else if ("build".equals(mode)) {
+			build(intArg(args, 1, 1000000));
+		} else if ("fuzzy".equals(mode)) {
+			fuzzy(intArg(args, 1, 1000000), intArg(args, 2, 1000));
+		} else if ("dawg".equals(mode)) {
+			dawg(intArg(args, 1, 1000000));
+		} else if ("arena".equals(mode)) {
+			arena(intArg(args, 1, 1000000));
+		} else if ("batch".equals(mode)) {
+			batch(intArg(args, 1, 1000000), intArg(args, 2, 200000));
+		} else if ("suffix".equals(mode)) {
+			suffix(intArg(args, 1, 1000000), intArg(args, 2, 1000));
+		} else if ("cache".equals(mode)) {
+			cache(intArg(args, 1, 1000000), intArg(args, 2, 100000), intArg(args, 3, 1000));
+		} else if ("stats".equals(mode)) {
+			stats(intArg(args, 1, 1000000), intArg(args, 2, 10000));
+		} else if ("load".equals(mode)) {
+			load(intArg(args, 1, 10000000), args.length > 2 ? args[2] : null);
+		} else if ("unicode".equals(mode)) {
+			unicode(intArg(args, 1, 200000), intArg(args, 2, 10000));
+		} else {
+			System.out.println("Unknown mode: " + mode);
+		}
+	}
+
+	private static int intArg(String[] args, int i, int dflt) {
+		return args.length > i ? Integer.parseInt(args[i]) : dflt;
+	}
+
+	/**
+	 * Generates lowercase random words, none of which is a prefix of another.
+	 * The words are shuffled, so insertion order is not sorted order.
+	 *
+	 * @param numWords Approximate number of words to generate
+	 * @param seed Random seed
+	 * @return Generated words
+	 */
+	static String[] syntheticWords(int numWords, long seed) {
+		Random random = new Random(seed);
+		String[] words = new String[numWords];
+		char[] buf = new char[12];
+		for (int i=0; i < numWords; i++) {
+			int len = 4 + random.nextInt(9);
+			for (int j=0; j < len; j++) {
+				// skewed letters, so that common prefixes are common
+				double r = random.nextDouble();
+				buf[j] = (char)('a' + (int)(26 * r * r));
+			}
+			words[i] = new String(buf, 0, len);
+		}
+		Arrays.sort(words);
+		int n = 0;
+		for (int i=0; i < words.length; i++) {
+			if (i+1 < words.length && words[i+1].startsWith(words[i])) {
+				continue;
+			}
+			words[n++] = words[i];
+		}
+		words = Arrays.copyOf(words, n);
+		for (int i=n-1; i > 0; i--) {
+			int j = random.nextInt(i+1);
+			String tmp = words[i]; words[i] = words[j]; words[j] = tmp;
+		}
+		return words;
+	}
+
+	/**
+	 * Tells if two tries have the same shape and the same substring indexes.
+	 */
+	static boolean sameTrie(TrieNode a, TrieNode b) {
+		while (a != null && b != null) {
+			if (a.substr == null ? b.substr != null : !a.substr.equals(b.substr)) {
+				return false;
+			}
+			if (!sameTrie(a.firstChild, b.firstChild)) {
+				return false;
+			}
+			a = a.sibling;
+			b = b.sibling;
+		}
+		return a == b;
+	}
+
+	/**
+	 * Times sequential against parallel trie construction, and checks that both
+	 * produce the same trie.
+	 */
+	private static void build(int numWords) {
+		String[] words = syntheticWords(numWords, 27);
+		TrieNode sequential = null, parallel = null;
+		long seqNanos = Long.MAX_VALUE, parNanos = Long.MAX_VALUE;
+		for (int round=0; round < 5; round++) {
+			long start = System.nanoTime();
+			sequential = Trie.buildTrie(words);
+			seqNanos = Math.min(seqNanos, System.nanoTime() - start);
+			start = System.nanoTime();
+			parallel = Trie.buildTrieParallel(words);
+			parNanos = Math.min(parNanos, System.nanoTime() - start);
+		}
+		System.out.printf("words=%d cores=%d%n", words.length, Runtime.getRuntime().availableProcessors());
+		System.out.printf("buildTrie:         %.1f ms%n", seqNanos / 1e6);
+		System.out.printf("buildTrieParallel: %.1f ms%n", parNanos / 1e6);
+		System.out.println("same trie: " + sameTrie(sequential, parallel));
+	}
+
+	/**
+	 * Times fuzzy completion for 1 and 2 edits against a scan of the whole
+	 * dictionary, and checks that both find the same words.
+	 */
+	private static void fuzzy(int numWords, int numQueries) {
+		String[] words = syntheticWords(numWords, 29);
+		TrieNode root = Trie.buildTrie(words);
+		Random random = new Random(29);
+		String[] prefixes = new String[numQueries];
+		for (int i=0; i < numQueries; i++) {
+			String word = words[random.nextInt(words.length)];
+			char[] prefix = word.substring(0, Math.min(word.length(), 4 + random.nextInt(3))).toCharArray();
+			// one typo
+			prefix[random.nextInt(prefix.length)] = (char)('a' + random.nextInt(26));
+			prefixes[i] = new String(prefix);
+		}
+		System.out.printf("words=%d queries=%d%n", words.length, numQueries);
+		for (int k=1; k <= 2; k++) {
+			long matches = 0, start = System.nanoTime();
+			for (String prefix : prefixes) {
+				ArrayList<TrieNode> found = Trie.fuzzyCompletions(root, words, prefix, k);
+				matches += found == null ? 0 : found.size();
+			}
+			double trieMicros = (System.nanoTime() - start) / 1e3 / numQueries;
+			int scanned = Math.min(numQueries, 50);
+			long scanMatches = 0, trieMatches = 0;
+			start = System.nanoTime();
+			for (int q=0; q < scanned; q++) {
+				for (String word : words) {
+					if (prefixDistance(prefixes[q], word) <= k) {
+						scanMatches++;
+					}
+				}
+			}
+			double scanMicros = (System.nanoTime() - start) / 1e3 / scanned;
+			for (int q=0; q < scanned; q++) {
+				ArrayList<TrieNode> found = Trie.fuzzyCompletions(root, words, prefixes[q], k);
+				trieMatches += found == null ? 0 : found.size();
+			}
+			System.out.printf("k=%d: trie %.1f us/query (%.1f matches), scan %.1f us/query, agree: %b%n",
+					k, trieMicros, (double)matches / numQueries, scanMicros, scanMatches == trieMatches);
+		}
+	}
+
+	/**
+	 * Compares the size of a DAWG with the size of the trie (plus the word array
+	 * it needs) for the same words, and checks that their completions agree.
+	 */
+	private static void dawg(int numWords) {
+		// every stem with every suffix, as in real dictionaries; the suffixes are
+		// not prefixes of each other, so neither are the words
+		String[] suffixes = {"ing", "ation", "ness", "ed", "ly"};
+		String[] stems = syntheticWords(numWords / suffixes.length, 30);
+		String[] words = new String[stems.length * suffixes.length];
+		for (int i=0; i < words.length; i++) {
+			words[i] = stems[i / suffixes.length] + suffixes[i % suffixes.length];
+		}
+		TrieNode root = Trie.buildTrie(words);
+		long start = System.nanoTime();
+		Dawg dawg = Dawg.build(words);
+		double buildMillis = (System.nanoTime() - start) / 1e6;
+
+		long trieNodes = 0, wordChars = 0;
+		for (String word : words) {
+			wordChars += word.length();
+		}
+		java.util.ArrayDeque<TrieNode> stack = new java.util.ArrayDeque<TrieNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			TrieNode node = stack.pop();
+			trieNodes++;
+			for (TrieNode ptr=node.firstChild; ptr != null; ptr=ptr.sibling) {
+				stack.push(ptr);
+			}
+		}
+		// compressed-oops estimates: TrieNode and Indexes are 24 bytes each; a String
+		// is 24 bytes plus a 16 byte array header; a state is 32 bytes plus two arrays
+		long trieBytes = trieNodes * 48 + words.length * (4 + 24 + 16) + wordChars;
+		long dawgBytes = dawg.stateCount() * (32L + 16 + 16) + dawg.transitionCount() * 6L;
+		System.out.printf("words=%d%n", words.length);
+		System.out.printf("trie: %d nodes, ~%.1f MB with words%n", trieNodes, trieBytes / 1e6);
+		System.out.printf("dawg: %d states, %d transitions, ~%.1f MB, built in %.1f ms%n",
+				dawg.stateCount(), dawg.transitionCount(), dawgBytes / 1e6, buildMillis);
+
+		Random random = new Random(30);
+		boolean agree = true;
+		for (int q=0; q < 1000; q++) {
+			String word = words[random.nextInt(words.length)];
+			String prefix = word.substring(0, 2 + random.nextInt(3));
+			ArrayList<TrieNode> leaves = Trie.completionList(root, words, prefix);
+			ArrayList<String> matches = dawg.completionList(prefix);
+			agree &= leaves != null && matches != null && leaves.size() == matches.size();
+			agree &= dawg.index(word) >= 0 && matches.contains(word);
+		}
+		System.out.println("completions agree: " + agree);
+	}
+
+	/**
+	 * Compares a trie over a word arena with a trie over a String array:
+	 * heap used by the words, build and query times, and that results agree.
+	 */
+	private static void arena(int numWords) {
+		String[] words = syntheticWords(numWords, 31);
+		long before = usedHeap();
+		String[] copies = new String[words.length];
+		for (int i=0; i < words.length; i++) {
+			copies[i] = new String(words[i].toCharArray());
+		}
+		long stringBytes = usedHeap() - before;
+		before = usedHeap();
+		WordArena arena = WordArena.of(words);
+		long arenaBytes = usedHeap() - before;
+
+		long start = System.nanoTime();
+		TrieNode root = Trie.buildTrie(copies);
+		double stringMillis = (System.nanoTime() - start) / 1e6;
+		start = System.nanoTime();
+		TrieNode arenaRoot = Trie.buildTrie(arena);
+		double arenaMillis = (System.nanoTime() - start) / 1e6;
+
+		Random random = new Random(31);
+		boolean agree = sameTrie(root, arenaRoot);
+		for (int q=0; q < 1000; q++) {
+			String word = words[random.nextInt(words.length)];
+			String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+			ArrayList<TrieNode> a = Trie.completionList(root, copies, prefix);
+			ArrayList<TrieNode> b = Trie.completionList(arenaRoot, arena, prefix);
+			agree &= a.size() == b.size();
+		}
+		System.out.printf("words=%d%n", words.length);
+		System.out.printf("String[]:  ~%.1f MB, trie built in %.1f ms%n", stringBytes / 1e6, stringMillis);
+		System.out.printf("WordArena: ~%.1f MB, trie built in %.1f ms%n", arenaBytes / 1e6, arenaMillis);
+		System.out.println("same trie and completions: " + agree);
+	}
+
+	/**
+	 * Times a batch of completions against one completionList call per prefix,
+	 * counts the nodes each looks at, and checks that both give the same number
+	 * of leaves for every prefix. Each is run a few rounds, alternately, so
+	 * neither is timed cold.
+	 */
+	private static void batch(int numWords, int numPrefixes) {
+		String[] words = syntheticWords(numWords, 32);
+		TrieNode root = Trie.buildTrie(words);
+		Random random = new Random(32);
+		ArrayList<String> prefixes = new ArrayList<String>(numPrefixes);
+		for (int i=0; i < numPrefixes; i++) {
+			String word = words[random.nextInt(words.length)];
+			prefixes.add(word.substring(0, Math.min(word.length(), 4 + random.nextInt(5))));
+		}
+		HashMap<String,ArrayList<TrieNode>> single = null, batched = null;
+		double singleMillis = 0, batchMillis = 0;
+		for (int round=0; round < 3; round++) {
+			long start = System.nanoTime();
+			single = new HashMap<String,ArrayList<TrieNode>>();
+			for (String prefix : prefixes) {
+				single.put(prefix, Trie.completionList(root, words, prefix));
+			}
+			singleMillis = (System.nanoTime() - start) / 1e6;
+			start = System.nanoTime();
+			batched = Trie.completionLists(root, words, prefixes);
+			batchMillis = (System.nanoTime() - start) / 1e6;
+		}
+		boolean agree = single.size() == batched.size();
+		for (String prefix : single.keySet()) {
+			ArrayList<TrieNode> a = single.get(prefix), b = batched.get(prefix);
+			agree &= a == null ? b == null : b != null && a.size() == b.size();
+		}
+		TrieMetrics metrics = new TrieMetrics();
+		long leaves = 0;
+		for (String prefix : prefixes) {
+			ArrayList<TrieNode> list = Trie.completionList(root, words, prefix, metrics);
+			leaves += list == null ? 0 : list.size();
+		}
+		int[] visited = new int[1];
+		Trie.completionLists(root, words, prefixes, visited);
+		System.out.printf("words=%d prefixes=%d distinct=%d leaves=%d%n", words.length, numPrefixes,
+				single.size(), leaves);
+		System.out.printf("completionList:  %.1f ms, %d nodes visited%n", singleMillis, metrics.getNodesVisited());
+		System.out.printf("completionLists: %.1f ms, %d nodes visited (sequential sweep)%n", batchMillis, visited[0]);
+		System.out.println("agree: " + agree);
+	}
+
+	/**
+	 * Times contains search with a suffix index against String.contains over
+	 * every word, and checks that both find the same words.
+	 */
+	private static void suffix(int numWords, int numQueries) {
+		String[] words = syntheticWords(numWords, 33);
+		long start = System.nanoTime();
+		SuffixIndex index = new SuffixIndex(words);
+		double buildMillis = (System.nanoTime() - start) / 1e6;
+		Random random = new Random(33);
+		String[] patterns = new String[numQueries];
+		for (int i=0; i < numQueries; i++) {
+			String word = words[random.nextInt(words.length)];
+			int from = random.nextInt(word.length() - 2);
+			patterns[i] = word.substring(from, Math.min(word.length(), from + 3 + random.nextInt(3)));
+		}
+		long matches = 0;
+		start = System.nanoTime();
+		for (String pattern : patterns) {
+			matches += index.wordIndexes(pattern).length;
+		}
+		double indexMicros = (System.nanoTime() - start) / 1e3 / numQueries;
+		int scanned = Math.min(numQueries, 50);
+		boolean agree = true;
+		start = System.nanoTime();
+		for (int q=0; q < scanned; q++) {
+			int count = 0;
+			for (String word : words) {
+				if (word.contains(patterns[q])) {
+					count++;
+				}
+			}
+			agree &= count == index.wordIndexes(patterns[q]).length;
+		}
+		double scanMicros = (System.nanoTime() - start) / 1e3 / scanned;
+		System.out.printf("words=%d, index built in %.1f ms%n", words.length, buildMillis);
+		System.out.printf("suffix index: %.1f us/query (%.1f matches), scan: %.1f us/query, agree: %b%n",
+				indexMicros, (double)matches / numQueries, scanMicros, agree);
+	}
+
+	/**
+	 * Runs a skewed query workload (short prefixes of a few popular words are
+	 * asked most) with and without a completion cache, inserting a word every
+	 * 1000 queries so that the cache is invalidated now and then.
+	 */
+	private static void cache(int numWords, int numQueries, int capacity) {
+		String[] words = syntheticWords(numWords, 34);
+		int half = words.length / 2;
+		Random random = new Random(34);
+		String[] prefixes = new String[numQueries];
+		for (int i=0; i < numQueries; i++) {
+			double u = random.nextDouble();
+			String word = words[(int)(half * u * u * u * u)];
+			prefixes[i] = word.substring(0, Math.min(word.length(), 1 + (int)(4 * u)));
+		}
+		for (int withCache=0; withCache <= 1; withCache++) {
+			ConcurrentTrie trie = new ConcurrentTrie(Arrays.copyOf(words, half));
+			CompletionCache cache = new CompletionCache(trie, capacity);
+			long matches = 0, start = System.nanoTime();
+			for (int i=0; i < numQueries; i++) {
+				if (i % 1000 == 999) {
+					trie.insert(words[half + i / 1000]);
+				}
+				List<String> found = withCache == 1 ? cache.completionList(prefixes[i]) : trie.completionList(prefixes[i]);
+				matches += found == null ? 0 : found.size();
+			}
+			double millis = (System.nanoTime() - start) / 1e6;
+			if (withCache == 1) {
+				System.out.printf("cache:    %.1f ms, %d matches, hits=%d misses=%d evictions=%d invalidations=%d%n",
+						millis, matches, cache.hits(), cache.misses(), cache.evictions(), cache.invalidations());
+			} else {
+				System.out.printf("no cache: %.1f ms, %d matches%n", millis, matches);
+			}
+		}
+	}
+
+	/**
+	 * Prints shape statistics and per-query metrics for a synthetic dictionary,
+	 * with the metrics registered over JMX while the queries run.
+	 */
+	private static void stats(int numWords, int numQueries) {
+		String[] words = syntheticWords(numWords, 35);
+		ConcurrentTrie trie = new ConcurrentTrie(words);
+		TrieMetrics metrics = new TrieMetrics();
+		try {
+			System.out.println("registered as " + metrics.register("bench"));
+		} catch (javax.management.JMException e) {
+			System.out.println("JMX registration failed: " + e);
+		}
+		trie.setMetrics(metrics);
+		Random random = new Random(35);
+		for (int i=0; i < numQueries; i++) {
+			String word = words[random.nextInt(words.length)];
+			trie.completionList(word.substring(0, Math.min(word.length(), 2 + random.nextInt(6))));
+		}
+		TrieStats stats = trie.stats();
+		System.out.println(stats);
+		System.out.println("leaf depths: " + Arrays.toString(stats.leafDepths));
+		System.out.println(metrics);
+	}
+
+	/**
+	 * Writes a words file with a count line (or uses the one given), then times
+	 * reading it the way TrieApp used to, with Scanner, against WordLoader.
+	 */
+	private static void load(int numLines, String fileName)
+	throws IOException {
+		File file;
+		if (fileName != null) {
+			file = new File(fileName);
+		} else {
+			file = File.createTempFile("words", ".txt");
+			file.deleteOnExit();
+			Random random = new Random(36);
+			BufferedWriter out = new BufferedWriter(new FileWriter(file), 1 << 16);
+			out.write(numLines + "\n");
+			char[] buf = new char[12];
+			for (int i=0; i < numLines; i++) {
+				int len = 4 + random.nextInt(9);
+				for (int j=0; j < len; j++) {
+					buf[j] = (char)((random.nextInt(8) == 0 ? 'A' : 'a') + random.nextInt(26));
+				}
+				out.write(buf, 0, len);
+				out.write('\n');
+			}
+			out.close();
+		}
+		long start = System.nanoTime();
+		Scanner sc = new Scanner(file);
+		int numWords = Integer.parseInt(sc.nextLine().trim());
+		String[] scanned = new String[numWords];
+		for (int i=0; i < numWords; i++) {
+			scanned[i] = sc.nextLine().trim().toLowerCase();
+		}
+		sc.close();
+		double scanMillis = (System.nanoTime() - start) / 1e6;
+		start = System.nanoTime();
+		WordArena arena = WordLoader.load(file, true);
+		double loadMillis = (System.nanoTime() - start) / 1e6;
+		boolean agree = arena.size() == scanned.length;
+		for (int i=0; agree && i < scanned.length; i++) {
+			agree = scanned[i].equals(arena.get(i));
+		}
+		System.out.printf("lines=%d (%.1f MB)%n", numWords, file.length() / 1e6);
+		System.out.printf("Scanner:    %.1f ms%n", scanMillis);
+		System.out.printf("WordLoader: %.1f ms%n", loadMillis);
+		System.out.println("same words: " + agree);
+	}
+
+	/**
+	 * Times completion on a CJK dictionary (with some supplementary characters)
+	 * with Trie, whose root scans thousands of siblings, and with UnicodeTrie,
+	 * and checks normalization on a few accented and cased words.
+	 */
+	private static void unicode(int numWords, int numQueries) {
+		Random random = new Random(37);
+		String[] words = new String[numWords];
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i < numWords; i++) {
+			sb.setLength(0);
+			int len = 2 + random.nextInt(4);
+			for (int j=0; j < len; j++) {
+				// 1 in 16 characters outside the BMP, taking a surrogate pair
+				sb.appendCodePoint(random.nextInt(16) == 0 ? 0x20000 + random.nextInt(2000) 
+						: 0x4E00 + random.nextInt(5000));
+			}
+			words[i] = sb.toString();
+		}
+		// Trie needs words that are not prefixes of each other
+		Arrays.sort(words);
+		int n = 0;
+		for (int i=0; i < words.length; i++) {
+			if (i+1 < words.length && words[i+1].startsWith(words[i]) || i > 0 && words[i].equals(words[i-1])) {
+				continue;
+			}
+			words[n++] = words[i];
+		}
+		words = Arrays.copyOf(words, n);
+		String[] prefixes = new String[numQueries];
+		for (int i=0; i < numQueries; i++) {
+			String word = words[random.nextInt(words.length)];
+			prefixes[i] = word.substring(0, word.offsetByCodePoints(0, 2));
+		}
+
+		TrieNode root = Trie.buildTrie(words);
+		UnicodeTrie unicodeTrie = new UnicodeTrie(UnicodeTrie.Normalization.NFC);
+		for (String word : words) {
+			unicodeTrie.insert(word);
+		}
+		long matches = 0, start = System.nanoTime();
+		for (String prefix : prefixes) {
+			ArrayList<TrieNode> found = Trie.completionList(root, words, prefix);
+			matches += found == null ? 0 : found.size();
+		}
+		double trieMicros = (System.nanoTime() - start) / 1e3 / numQueries;
+		long unicodeMatches = 0;
+		start = System.nanoTime();
+		for (String prefix : prefixes) {
+			ArrayList<String> found = unicodeTrie.completionList(prefix);
+			unicodeMatches += found == null ? 0 : found.size();
+		}
+		double unicodeMicros = (System.nanoTime() - start) / 1e3 / numQueries;
+		System.out.printf("words=%d root children=%d%n", words.length, TrieStats.of(root).maxChildren);
+		System.out.printf("Trie:        %.2f us/query%n", trieMicros);
+		System.out.printf("UnicodeTrie: %.2f us/query, same matches: %b%n", unicodeMicros, matches == unicodeMatches);
+
+		UnicodeTrie folded = new UnicodeTrie(UnicodeTrie.Normalization.ACCENT_STRIP);
+		for (String word : new String[] {"Caf\u00e9", "cafe\u0301s", "STRASSE", "stra\u00dfe", "\u039f\u0394\u039f\u03a3"}) {
+			folded.insert(word);
+		}
+		System.out.println("caf -> " + folded.completionList("caf"));
+		System.out.println("strasse -> " + folded.completionList("strasse"));
+		System.out.println("\u03bf\u03b4\u03bf\u03c2 -> " + folded.completionList("\u03bf\u03b4\u03bf\u03c2"));
+	}
+
+	/**
+	 * Generates lowercase words that share prefixes of a given depth: each word
+	 * is one of about numWords/64 random stems of prefixDepth letters, followed by
+	 * a random tail. No word is a prefix of another, and the words are shuffled.
+	 *
+	 * @param numWords Approximate number of words to generate
+	 * @param prefixDepth Length of shared stems (0 for fully random words)
+	 * @param seed Random seed
+	 * @return Generated words
+	 */
+	static String[] dictionary(int numWords, int prefixDepth, long seed) {
+		Random random = new Random(seed);
+		char[][] stems = new char[Math.max(1, numWords / 64)][prefixDepth];
+		for (char[] stem : stems) {
+			for (int j=0; j < prefixDepth; j++) {
+				stem[j] = (char)('a' + random.nextInt(26));
+			}
+		}
+		String[] words = new String[numWords];
+		char[] buf = new char[prefixDepth + 10];
+		for (int i=0; i < numWords; i++) {
+			System.arraycopy(stems[random.nextInt(stems.length)], 0, buf, 0, prefixDepth);
+			int len = prefixDepth + 3 + random.nextInt(8);
+			for (int j=prefixDepth; j < len; j++) {
+				buf[j] = (char)('a' + random.nextInt(26));
+			}
+			words[i] = new String(buf, 0, len);
+		}
+		Arrays.sort(words);
+		int n = 0;
+		for (int i=0; i < words.length; i++) {
+			if (i+1 < words.length && words[i+1].startsWith(words[i])) {
+				continue;
+			}
+			words[n++] = words[i];
+		}
+		words = Arrays.copyOf(words, n);
+		for (int i=n-1; i > 0; i--) {
+			int j = random.nextInt(i+1);
+			String tmp = words[i]; words[i] = words[j]; words[j] = tmp;
+		}
+		return words;
+	}
+
+	/**
+	 * Bytes allocated so far by the current thread, or -1 if the JVM can't tell
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean)threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+
+	/**
+	 * Benchmark suite: for dictionaries of 1K words up to maxWords (growing ten
+	 * fold), or for the words in a file (with a count line, as TrieApp reads
+	 * them), measures
+	 * - buildTrie time (best of several runs, after warm up)
+	 * - retained heap of the trie (heap used after GC, with and without it)
+	 * - completionList latency (median and 99th percentile) and bytes allocated
+	 *   per query, for prefixes of length 1 to 8
+	 */
+	private static void suite(int maxWords, int prefixDepth, String fileName)
+	throws IOException {
+		ArrayList<String[]> dictionaries = new ArrayList<String[]>();
+		if (fileName != null) {
+			dictionaries.add(WordLoader.load(new File(fileName), true).toArray());
+		} else {
+			for (int n=1000; n <= maxWords; n *= 10) {
+				dictionaries.add(dictionary(n, prefixDepth, n));
+			}
+		}
+		System.out.printf("%9s %9s %10s %10s %4s %10s %10s %10s%n",
+				"words", "build ms", "heap MB", "est MB", "len", "p50 us", "p99 us", "B/query");
+		for (String[] words : dictionaries) {
+			int rounds = Math.max(3, Math.min(20, 2000000 / words.length));
+			long best = Long.MAX_VALUE;
+			TrieNode root = null;
+			for (int r=0; r < rounds; r++) {
+				root = null;
+				long start = System.nanoTime();
+				root = Trie.buildTrie(words);
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			long withTrie = usedHeap();
+			TrieStats stats = TrieStats.of(root);
+			root = null;
+			long withoutTrie = usedHeap();
+			root = Trie.buildTrie(words);
+
+			Random random = new Random(38);
+			int queries = 2000;
+			long[] nanos = new long[queries];
+			for (int len=1; len <= 8; len++) {
+				String[] prefixes = new String[queries];
+				for (int q=0; q < queries; q++) {
+					String word = words[random.nextInt(words.length)];
+					prefixes[q] = word.substring(0, Math.min(len, word.length()));
+				}
+				// warm up
+				for (int q=0; q < queries; q++) {
+					Trie.completionList(root, words, prefixes[q]);
+				}
+				long allocated = allocatedBytes();
+				for (int q=0; q < queries; q++) {
+					long start = System.nanoTime();
+					Trie.completionList(root, words, prefixes[q]);
+					nanos[q] = System.nanoTime() - start;
+				}
+				allocated = allocated < 0 ? -1 : (allocatedBytes() - allocated) / queries;
+				Arrays.sort(nanos);
+				System.out.printf("%9d %9.1f %10.1f %10.1f %4d %10.1f %10.1f %10d%n",
+						words.length, best / 1e6, (withTrie - withoutTrie) / 1e6, stats.estimatedBytes / 1e6,
+						len, nanos[queries / 2] / 1e3, nanos[queries * 99 / 100] / 1e3, allocated);
+			}
+		}
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i=0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Smallest edit distance between a prefix and any prefix of a word.
+	 */
+	private static int prefixDistance(String prefix, String word) {
+		int m = prefix.length();
+		int[] prev = new int[m+1], row = new int[m+1];
+		for (int j=0; j <= m; j++) {
+			prev[j] = j;
+		}
+		int best = prev[m];
+		for (int i=0; i < word.length(); i++) {
+			row[0] = i + 1;
+			for (int j=1; j <= m; j++) {
+				int cost = prev[j-1] + (prefix.charAt(j-1) == word.charAt(i) ? 0 : 1);
+				row[j] = Math.min(cost, Math.min(prev[j], row[j-1]) + 1);
+			}
+			best = Math.min(best, row[m]);
+			int[] tmp = prev; prev = row; row = tmp;
+		}
+		return best;
+	}
+
+	/**
+	 * Stress test and throughput benchmark for ConcurrentTrie: readers query
+	 * random prefixes and check every result, while one writer inserts the
+	 * second half of the dictionary.
+	 */
+	private static void concurrent(int numWords, int readers, int seconds)
+	throws InterruptedException {
+		final String[] words = syntheticWords(numWords, 26);
+		final int half = words.length / 2;
+		final ConcurrentTrie trie = new ConcurrentTrie(Arrays.copyOf(words, half));
+		final AtomicBoolean stop = new AtomicBoolean();
+		final AtomicLong queries = new AtomicLong(), failures = new AtomicLong();
+
+		Thread[] threads = new Thread[readers];
+		for (int t=0; t < readers; t++) {
+			final long seed = t;
+			threads[t] = new Thread(new Runnable() {
+				public void run() {
+					Random random = new Random(seed);
+					long count = 0;
+					while (!stop.get()) {
+						String word = words[random.nextInt(half)];
+						String prefix = word.substring(0, 1 + random.nextInt(Math.min(3, word.length())));
+						ArrayList<String> matches = trie.completionList(prefix);
+						if (matches == null || !matches.contains(word)) {
+							failures.incrementAndGet();
+						} else {
+							for (String match : matches) {
+								if (!match.startsWith(prefix)) {
+									failures.incrementAndGet();
+								}
+							}
+						}
+						count++;
+					}
+					queries.addAndGet(count);
+				}
+			});
+			threads[t].start();
+		}
+
+		long start = System.nanoTime(), deadline = start + seconds * 1000000000L;
+		int inserted = 0;
+		for (int i=half; i < words.length && System.nanoTime() < deadline; i++) {
+			trie.insert(words[i]);
+			inserted++;
+		}
+		double insertSecs = (System.nanoTime() - start) / 1e9;
+		while (System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+		stop.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		for (int i=half; i < half + inserted; i++) {
+			if (!trie.contains(words[i])) {
+				failures.incrementAndGet();
+			}
+		}
+		double secs = (System.nanoTime() - start) / 1e9;
+		System.out.printf("words=%d readers=%d%n", words.length, readers);
+		System.out.printf("inserts: %d in %.2fs (%.0f/s)%n", inserted, insertSecs, inserted / insertSecs);
+		System.out.printf("queries: %d in %.2fs (%.0f/s)%n", queries.get(), secs, queries.get() / secs);
+		System.out.println("failures: " + failures.get());
+	}
+}
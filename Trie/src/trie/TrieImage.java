@@ -0,0 +1,260 @@
+package trie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * This class is a read-only trie served directly from a memory-mapped file.
+ *
+ * A trie image is written once from a built trie, and can then be opened in
+ * time independent of its size: nothing is deserialized, completion queries
+ * walk the mapped nodes, and only the words that are returned become Strings.
+ * Processes that open the same image share its pages in the OS page cache.
+ *
+ * Image layout (all values big-endian):
+ * <pre>
+ *   header   MAGIC, VERSION, nodeCount, wordCount, charCount     (5 ints)
+ *   nodes    wordIndex, startIndex, endIndex, firstChild, sibling (5 ints per node)
+ *   offsets  start of each word in chars, plus end of last word  (wordCount+1 ints)
+ *   chars    all words, concatenated                           (charCount chars)
+ * </pre>
+ * Node 0 is the root. Children and siblings are node numbers, -1 if none.
+ *
+ */
+public class TrieImage {
+
+	/**
+	 * File name suffix for trie images
+	 */
+	public static final String SUFFIX = ".trie";
+
+	private static final int MAGIC = 0x54524945; // "TRIE"
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 5, NODE_INTS = 5;
+
+	private static final int WORD = 0, START = 1, END = 2, CHILD = 3, SIBLING = 4;
+
+	private final IntBuffer nodes;
+	private final IntBuffer offsets;
+	private final CharBuffer chars;
+	private final int wordCount;
+
+	private TrieImage(ByteBuffer buf)
+	throws IOException {
+		IntBuffer header = buf.asIntBuffer();
+		if (header.get(0) != MAGIC || header.get(1) != VERSION) {
+			throw new IOException("not a trie image");
+		}
+		int nodeCount = header.get(2);
+		wordCount = header.get(3);
+		int charCount = header.get(4);
+		int pos = HEADER_INTS * 4;
+		nodes = slice(buf, pos, nodeCount * NODE_INTS * 4).asIntBuffer();
+		pos += nodeCount * NODE_INTS * 4;
+		offsets = slice(buf, pos, (wordCount + 1) * 4).asIntBuffer();
+		pos += (wordCount + 1) * 4;
+		chars = slice(buf, pos, charCount * 2).asCharBuffer();
+	}
+
+	private static ByteBuffer slice(ByteBuffer buf, int pos, int len) {
+		ByteBuffer dup = buf.duplicate();
+		dup.position(pos);
+		dup.limit(pos + len);
+		return dup.slice();
+	}
+
+	/**
+	 * Opens a trie image by mapping it into memory. The image must be
+	 * smaller than 2GB.
+	 *
+	 * @param file Image file, as written by write
+	 * @return Trie image ready for queries
+	 * @throws IOException If the file can't be mapped, or is not a trie image
+	 */
+	public static TrieImage open(File file)
+	throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new TrieImage(buf);
+		} finally {
+			// the mapping stays valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * Writes a trie, and the words it indexes, as a trie image.
+	 *
+	 * @param root Root of trie
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param file Image file to write
+	 * @throws IOException If the file can't be written
+	 */
+	public static void write(TrieNode root, String[] allWords, File file)
+	throws IOException {
+		ArrayList<TrieNode> order = new ArrayList<TrieNode>();
+		number(root, order);
+		IdentityHashMap<TrieNode,Integer> ids = new IdentityHashMap<TrieNode,Integer>(order.size() * 2);
+		for (int i=0; i < order.size(); i++) {
+			ids.put(order.get(i), i);
+		}
+		long charCount = 0;
+		for (String word : allWords) {
+			charCount += word.length();
+		}
+		if (charCount > Integer.MAX_VALUE) {
+			throw new IOException("too many characters for a trie image");
+		}
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(order.size());
+			out.writeInt(allWords.length);
+			out.writeInt((int)charCount);
+			for (TrieNode node : order) {
+				if (node.substr == null) {
+					out.writeInt(-1); out.writeInt(0); out.writeInt(-1);
+				} else {
+					out.writeInt(node.substr.wordIndex);
+					out.writeInt(node.substr.startIndex);
+					out.writeInt(node.substr.endIndex);
+				}
+				out.writeInt(node.firstChild == null ? -1 : ids.get(node.firstChild));
+				out.writeInt(node.sibling == null ? -1 : ids.get(node.sibling));
+			}
+			int offset = 0;
+			for (String word : allWords) {
+				out.writeInt(offset);
+				offset += word.length();
+			}
+			out.writeInt(offset);
+			for (String word : allWords) {
+				out.writeChars(word);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Lists the nodes of a trie in preorder. Sibling chains are walked in a
+	 * loop, so recursion depth is bounded by word length.
+	 */
+	private static void number(TrieNode node, ArrayList<TrieNode> order) {
+		for (; node != null; node = node.sibling) {
+			order.add(node);
+			number(node.firstChild, order);
+		}
+	}
+
+	/**
+	 * Returns number of words in the image.
+	 *
+	 * @return Number of words
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	/**
+	 * Returns a word in the image.
+	 *
+	 * @param wordIndex Index of word, as in the array the image was written from
+	 * @return The word
+	 */
+	public String word(int wordIndex) {
+		int from = offsets.get(wordIndex), to = offsets.get(wordIndex + 1);
+		char[] word = new char[to - from];
+		for (int i=0; i < word.length; i++) {
+			word[i] = chars.get(from + i);
+		}
+		return new String(word);
+	}
+
+	private char charAt(int wordIndex, int i) {
+		return chars.get(offsets.get(wordIndex) + i);
+	}
+
+	private int field(int node, int field) {
+		return nodes.get(node * NODE_INTS + field);
+	}
+
+	/**
+	 * Returns all words in the image that start with the prefix. Same as
+	 * {@link Trie#completionList(TrieNode, String[], String)}, except that
+	 * words are returned instead of leaf nodes.
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Words that start with the prefix, in no particular order.
+	 *         If there is no word in the image that has this prefix, null is returned.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		int child = field(0, CHILD);
+		while (child != -1) {
+			int wordIndex = field(child, WORD);
+			int startIndex = field(child, START), endIndex = field(child, END) + 1;
+			if (prefix.charAt(startIndex) == charAt(wordIndex, startIndex)) {
+				int stop = Math.min(prefix.length(), endIndex);
+				for (int i=startIndex+1; i < stop; i++) {
+					if (prefix.charAt(i) != charAt(wordIndex, i)) {
+						return null;
+					}
+				}
+				if (prefix.length() <= endIndex) {
+					ArrayList<String> matches = new ArrayList<String>();
+					addLeaves(child, matches);
+					return matches;
+				}
+				child = field(child, CHILD);
+				continue;
+			}
+			child = field(child, SIBLING);
+		}
+		return null;
+	}
+
+	private void addLeaves(int node, ArrayList<String> matches) {
+		int first = field(node, CHILD);
+		if (first == -1) {
+			matches.add(word(field(node, WORD)));
+			return;
+		}
+		for (int child=first; child != -1; child=field(child, SIBLING)) {
+			addLeaves(child, matches);
+		}
+	}
+
+	/**
+	 * Converts a words file (as read by TrieApp) into a trie image.
+	 *
+	 * Usage: java trie.TrieImage wordsFile imageFile
+	 */
+	public static void main(String[] args)
+	throws IOException {
+		if (args.length != 2) {
+			System.out.println("Usage: java trie.TrieImage wordsFile imageFile");
+			return;
+		}
+		String[] allWords = TrieApp.readWords(new File(args[0])).toArray();
+		long start = System.nanoTime();
+		TrieNode root = Trie.buildTrieParallel(allWords);
+		write(root, allWords, new File(args[1]));
+		System.out.printf("%d words written to %s in %.1f ms%n", allWords.length, args[1],
+				(System.nanoTime() - start) / 1e6);
+	}
+}
@@ -0,0 +1,136 @@
+package trie;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * This class accumulates per-query counters for completion queries (queries,
+ * nodes visited, leaves emitted, time), along with the latest shape statistics
+ * of the trie, and can export them over JMX. Counters are safe to update from
+ * many threads.
+ *
+ */
+public class TrieMetrics implements TrieMetricsMBean {
+
+	private final AtomicLong queries = new AtomicLong();
+	private final AtomicLong nodesVisited = new AtomicLong();
+	private final AtomicLong leavesEmitted = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+
+	/**
+	 * Latest shape statistics, null until set
+	 */
+	private volatile TrieStats shape;
+
+	/**
+	 * Records one completion query.
+	 *
+	 * @param nodes Number of trie nodes the query visited
+	 * @param leaves Number of leaves it returned
+	 * @param nanos Time it took
+	 */
+	public void record(int nodes, int leaves, long nanos) {
+		queries.incrementAndGet();
+		nodesVisited.addAndGet(nodes);
+		leavesEmitted.addAndGet(leaves);
+		totalNanos.addAndGet(nanos);
+	}
+
+	/**
+	 * Sets the shape statistics reported with the counters.
+	 *
+	 * @param shape Statistics of the trie being queried
+	 */
+	public void setShape(TrieStats shape) {
+		this.shape = shape;
+	}
+
+	/**
+	 * Registers these metrics with the platform MBean server, under
+	 * trie:type=TrieMetrics,name=[name].
+	 *
+	 * @param name Name to tell this trie apart from others
+	 * @return Name the metrics were registered under
+	 * @throws JMException If registration fails
+	 */
+	public ObjectName register(String name)
+	throws JMException {
+		ObjectName objectName = new ObjectName("trie:type=TrieMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	public long getQueries() {
+		return queries.get();
+	}
+
+	public long getNodesVisited() {
+		return nodesVisited.get();
+	}
+
+	public long getLeavesEmitted() {
+		return leavesEmitted.get();
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.get();
+	}
+
+	public double getAverageNanos() {
+		long q = queries.get();
+		return q == 0 ? 0 : (double)totalNanos.get() / q;
+	}
+
+	public double getAverageNodesVisited() {
+		long q = queries.get();
+		return q == 0 ? 0 : (double)nodesVisited.get() / q;
+	}
+
+	public int getNodeCount() {
+		TrieStats s = shape;
+		return s == null ? 0 : s.nodeCount;
+	}
+
+	public int getMaxDepth() {
+		TrieStats s = shape;
+		return s == null ? 0 : s.maxDepth;
+	}
+
+	public double getAverageDepth() {
+		TrieStats s = shape;
+		return s == null ? 0 : s.averageDepth();
+	}
+
+	public double getAverageChildren() {
+		TrieStats s = shape;
+		return s == null ? 0 : s.averageChildren;
+	}
+
+	public int getMaxChildren() {
+		TrieStats s = shape;
+		return s == null ? 0 : s.maxChildren;
+	}
+
+	public long getEstimatedBytes() {
+		TrieStats s = shape;
+		return s == null ? 0 : s.estimatedBytes;
+	}
+
+	public void reset() {
+		queries.set(0);
+		nodesVisited.set(0);
+		leavesEmitted.set(0);
+		totalNanos.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("queries=%d avgNodes=%.1f leaves=%d avgMicros=%.1f",
+				getQueries(), getAverageNodesVisited(), getLeavesEmitted(), getAverageNanos() / 1e3);
+	}
+}
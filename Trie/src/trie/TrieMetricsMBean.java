@@ -0,0 +1,34 @@
+package trie;
+
+/**
+ * JMX view of {@link TrieMetrics}.
+ *
+ */
+public interface TrieMetricsMBean {
+
+	long getQueries();
+
+	long getNodesVisited();
+
+	long getLeavesEmitted();
+
+	long getTotalNanos();
+
+	double getAverageNanos();
+
+	double getAverageNodesVisited();
+
+	int getNodeCount();
+
+	int getMaxDepth();
+
+	double getAverageDepth();
+
+	double getAverageChildren();
+
+	int getMaxChildren();
+
+	long getEstimatedBytes();
+
+	void reset();
+}
@@ -31,12 +31,12 @@ class Indexes {
 	/**
 	 * Start index of substring in word.
 	 */
-	short startIndex;
+	int startIndex;
 	
 	/**
 	 * End index of substring in word.
 	 */
-	short endIndex;
+	int endIndex;
 	
 	/**
 	 * Initializes this instance with all indexes.
@@ -45,7 +45,7 @@ class Indexes {
 	 * @param startIndex Starting index of substring
 	 * @param endIndex Ending index of substring
 	 */
-	public Indexes(int wordIndex, short startIndex, short endIndex) {
+	public Indexes(int wordIndex, int startIndex, int endIndex) {
 		this.wordIndex = wordIndex;
 		this.startIndex = startIndex;
 		this.endIndex = endIndex;
@@ -70,6 +70,13 @@ class Indexes {
 				startIndex == oi.startIndex &&
 				endIndex == oi.endIndex;
 	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		return (wordIndex * 31 + startIndex) * 31 + endIndex;
+	}
 }
 
 /**
@@ -0,0 +1,133 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * This class holds shape statistics for a trie: how many nodes it has, how deep
+ * its leaves are, and how long its sibling lists are. Lookups scan sibling lists
+ * linearly, so long lists and deep leaves mean slow completion.
+ *
+ */
+public class TrieStats {
+
+	/**
+	 * Estimated bytes for a TrieNode and an Indexes, with compressed references
+	 */
+	private static final int NODE_BYTES = 24, INDEXES_BYTES = 24;
+
+	/**
+	 * Number of nodes, not counting the root
+	 */
+	public final int nodeCount;
+
+	/**
+	 * Number of leaves, which is the number of words
+	 */
+	public final int leafCount;
+
+	/**
+	 * Greatest number of nodes from the root down to a leaf
+	 */
+	public final int maxDepth;
+
+	/**
+	 * leafDepths[d] is the number of leaves d nodes below the root
+	 */
+	public final int[] leafDepths;
+
+	/**
+	 * Average number of children of nodes that have children, including the root
+	 */
+	public final double averageChildren;
+
+	/**
+	 * Greatest number of children of any node
+	 */
+	public final int maxChildren;
+
+	/**
+	 * Estimated heap taken by the nodes and their Indexes (not the words)
+	 */
+	public final long estimatedBytes;
+
+	private TrieStats(int nodeCount, int leafCount, int[] leafDepths, double averageChildren, int maxChildren) {
+		this.nodeCount = nodeCount;
+		this.leafCount = leafCount;
+		this.maxDepth = leafDepths.length - 1;
+		this.leafDepths = leafDepths;
+		this.averageChildren = averageChildren;
+		this.maxChildren = maxChildren;
+		this.estimatedBytes = (long)(nodeCount + 1) * NODE_BYTES + (long)nodeCount * INDEXES_BYTES;
+	}
+
+	/**
+	 * Collects the statistics of a trie by walking all of it.
+	 *
+	 * @param root Root of trie
+	 * @return Statistics of the trie
+	 */
+	public static TrieStats of(TrieNode root) {
+		int nodes = 0, leaves = 0, parents = 0, maxChildren = 0;
+		long children = 0;
+		int[] depths = new int[16];
+		int maxDepth = 0;
+		ArrayList<TrieNode> stack = new ArrayList<TrieNode>();
+		int[] stackDepths = new int[16];
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			int top = stack.size() - 1;
+			TrieNode node = stack.remove(top);
+			int depth = stackDepths[top];
+			if (node != root) {
+				nodes++;
+			}
+			if (node.firstChild == null) {
+				if (node != root) {
+					leaves++;
+					if (depth >= depths.length) {
+						depths = Arrays.copyOf(depths, depth * 2);
+					}
+					depths[depth]++;
+					maxDepth = Math.max(maxDepth, depth);
+				}
+				continue;
+			}
+			int count = 0;
+			for (TrieNode ptr=node.firstChild; ptr != null; ptr=ptr.sibling) {
+				if (stack.size() == stackDepths.length) {
+					stackDepths = Arrays.copyOf(stackDepths, stackDepths.length * 2);
+				}
+				stackDepths[stack.size()] = depth + 1;
+				stack.add(ptr);
+				count++;
+			}
+			parents++;
+			children += count;
+			maxChildren = Math.max(maxChildren, count);
+		}
+		return new TrieStats(nodes, leaves, Arrays.copyOf(depths, maxDepth + 1),
+				parents == 0 ? 0 : (double)children / parents, maxChildren);
+	}
+
+	/**
+	 * Returns the average number of nodes from the root down to a leaf.
+	 *
+	 * @return Average leaf depth, 0 if the trie is empty
+	 */
+	public double averageDepth() {
+		long sum = 0;
+		for (int d=0; d < leafDepths.length; d++) {
+			sum += (long)d * leafDepths[d];
+		}
+		return leafCount == 0 ? 0 : (double)sum / leafCount;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		return String.format("nodes=%d leaves=%d maxDepth=%d avgDepth=%.2f avgChildren=%.2f maxChildren=%d bytes~%d",
+				nodeCount, leafCount, maxDepth, averageDepth(), averageChildren, maxChildren, estimatedBytes);
+	}
+}
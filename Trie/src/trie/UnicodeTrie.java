@@ -0,0 +1,289 @@
+package trie;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * This class implements a trie keyed by Unicode code points, for dictionaries
+ * beyond lower case English.
+ *
+ * Words are normalized once when inserted and prefixes once per query, by a
+ * pluggable normalization (see {@link Normalization} for the standard ones), and
+ * then walked one code point at a time, so a surrogate pair is never split, and
+ * an accented "cafe" can match a plain one. Completion returns the words as
+ * they were inserted.
+ *
+ * Each node keeps its children in a sorted code point array searched by binary
+ * search; once a node has more than HASH_THRESHOLD children (the root of a CJK
+ * dictionary can have thousands) they move to an open-addressing hash table, so
+ * lookups never degrade into a long sibling scan. Words may be prefixes of
+ * other words.
+ *
+ */
+public class UnicodeTrie {
+
+	/**
+	 * Standard normalizations, applied to words and prefixes alike.
+	 */
+	public enum Normalization implements Function<String,String> {
+
+		/**
+		 * Code points are compared as given.
+		 */
+		NONE {
+			public String apply(String s) {
+				return s;
+			}
+		},
+
+		/**
+		 * Canonical composition, so that "e" followed by a combining acute accent
+		 * matches the precomposed accented "e".
+		 */
+		NFC {
+			public String apply(String s) {
+				return Normalizer.normalize(s, Normalizer.Form.NFC);
+			}
+		},
+
+		/**
+		 * NFC, then case folding, independent of the default locale.
+		 * Upper casing first folds forms like final sigma and sharp s.
+		 */
+		CASE_FOLD {
+			public String apply(String s) {
+				return NFC.apply(s).toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+			}
+		},
+
+		/**
+		 * Case folding, with accents and other combining marks removed.
+		 */
+		ACCENT_STRIP {
+			public String apply(String s) {
+				String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+				return CASE_FOLD.apply(decomposed.replaceAll("\\p{M}+", ""));
+			}
+		};
+	}
+
+	/**
+	 * Child count above which a node's children move to a hash table
+	 */
+	private static final int HASH_THRESHOLD = 32;
+
+	/**
+	 * Marks an empty slot in a hash table
+	 */
+	private static final int EMPTY = -1;
+
+	private static final int[] NO_KEYS = new int[0];
+	private static final Node[] NO_CHILDREN = new Node[0];
+
+	/**
+	 * A trie node: one code point deeper than its parent.
+	 */
+	static final class Node {
+
+		/**
+		 * Code points of children: sorted in keys[0..count-1], or, once hashed,
+		 * a power-of-2 table with EMPTY slots
+		 */
+		int[] keys = NO_KEYS;
+
+		/**
+		 * Children, in the same slots as their keys
+		 */
+		Node[] children = NO_CHILDREN;
+
+		/**
+		 * Number of children
+		 */
+		int count;
+
+		boolean hashed;
+
+		/**
+		 * Words inserted that normalize to the path to this node, null if none
+		 */
+		String[] words;
+
+		Node child(int cp) {
+			if (hashed) {
+				int mask = keys.length - 1;
+				for (int i=hash(cp) & mask; keys[i] != EMPTY; i=(i+1) & mask) {
+					if (keys[i] == cp) {
+						return children[i];
+					}
+				}
+				return null;
+			}
+			int i = Arrays.binarySearch(keys, 0, count, cp);
+			return i < 0 ? null : children[i];
+		}
+
+		Node addChild(int cp) {
+			Node child = new Node();
+			if (!hashed && count == HASH_THRESHOLD) {
+				int[] oldKeys = keys;
+				Node[] oldChildren = children;
+				hashed = true;
+				keys = new int[HASH_THRESHOLD * 4];
+				Arrays.fill(keys, EMPTY);
+				children = new Node[keys.length];
+				for (int i=0; i < count; i++) {
+					put(oldKeys[i], oldChildren[i]);
+				}
+			}
+			if (hashed) {
+				if ((count + 1) * 2 > keys.length) {
+					int[] oldKeys = keys;
+					Node[] oldChildren = children;
+					keys = new int[oldKeys.length * 2];
+					Arrays.fill(keys, EMPTY);
+					children = new Node[keys.length];
+					for (int i=0; i < oldKeys.length; i++) {
+						if (oldKeys[i] != EMPTY) {
+							put(oldKeys[i], oldChildren[i]);
+						}
+					}
+				}
+				put(cp, child);
+			} else {
+				int i = -(Arrays.binarySearch(keys, 0, count, cp) + 1);
+				if (count == keys.length) {
+					int capacity = Math.max(2, count * 2);
+					keys = Arrays.copyOf(keys, capacity);
+					children = Arrays.copyOf(children, capacity);
+				}
+				System.arraycopy(keys, i, keys, i + 1, count - i);
+				System.arraycopy(children, i, children, i + 1, count - i);
+				keys[i] = cp;
+				children[i] = child;
+			}
+			count++;
+			return child;
+		}
+
+		private void put(int cp, Node child) {
+			int mask = keys.length - 1, i = hash(cp) & mask;
+			while (keys[i] != EMPTY) {
+				i = (i + 1) & mask;
+			}
+			keys[i] = cp;
+			children[i] = child;
+		}
+
+		private static int hash(int cp) {
+			int h = cp * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+	}
+
+	private final Function<String,String> normalization;
+	private final Node root = new Node();
+	private int size;
+
+	/**
+	 * Initializes an empty trie with case folding.
+	 */
+	public UnicodeTrie() {
+		this(Normalization.CASE_FOLD);
+	}
+
+	/**
+	 * Initializes an empty trie.
+	 *
+	 * @param normalization Normalization applied to words and prefixes, either one
+	 *        of the standard Normalizations or any other function
+	 */
+	public UnicodeTrie(Function<String,String> normalization) {
+		this.normalization = normalization;
+	}
+
+	/**
+	 * Inserts a word. A word that normalizes the same as an inserted word is
+	 * kept as well, unless it is exactly the same word.
+	 *
+	 * @param word Word to insert, as it should be returned by completion
+	 * @return True if the word was inserted, false if it was already present
+	 */
+	public boolean insert(String word) {
+		String key = normalization.apply(word);
+		Node node = root;
+		for (int i=0; i < key.length(); ) {
+			int cp = key.codePointAt(i);
+			Node child = node.child(cp);
+			node = child != null ? child : node.addChild(cp);
+			i += Character.charCount(cp);
+		}
+		if (node.words == null) {
+			node.words = new String[] { word };
+		} else {
+			for (String w : node.words) {
+				if (w.equals(word)) {
+					return false;
+				}
+			}
+			node.words = Arrays.copyOf(node.words, node.words.length + 1);
+			node.words[node.words.length - 1] = word;
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Returns all words whose normalized form starts with the normalized prefix.
+	 * (A prefix can be an entire word.)
+	 *
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Words, as inserted, in no particular order.
+	 *         If there is no word in the trie that has this prefix, null is returned.
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		String key = normalization.apply(prefix);
+		Node node = root;
+		for (int i=0; i < key.length() && node != null; ) {
+			int cp = key.codePointAt(i);
+			node = node.child(cp);
+			i += Character.charCount(cp);
+		}
+		if (node == null) {
+			return null;
+		}
+		ArrayList<String> matches = new ArrayList<String>();
+		addWords(node, matches);
+		return matches.isEmpty() ? null : matches;
+	}
+
+	private static void addWords(Node node, ArrayList<String> matches) {
+		if (node.words != null) {
+			for (String word : node.words) {
+				matches.add(word);
+			}
+		}
+		if (node.hashed) {
+			for (int i=0; i < node.keys.length; i++) {
+				if (node.keys[i] != EMPTY) {
+					addWords(node.children[i], matches);
+				}
+			}
+		} else {
+			for (int i=0; i < node.count; i++) {
+				addWords(node.children[i], matches);
+			}
+		}
+	}
+
+	/**
+	 * Returns number of words in the trie.
+	 *
+	 * @return Number of words
+	 */
+	public int size() {
+		return size;
+	}
+}
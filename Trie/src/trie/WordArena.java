@@ -0,0 +1,225 @@
+package trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * This class stores a collection of words packed into one byte array, with an
+ * int array of word offsets, so a word costs its characters plus 4 bytes
+ * instead of a String object and its backing array.
+ *
+ * Characters are stored one byte each (Latin-1) until a word with a character
+ * above 0xFF is added; from then on the whole arena stores two bytes per
+ * character. Either way, word i is characters offsets[i] to offsets[i+1]-1.
+ *
+ * A trie built on an arena with {@link Trie#buildTrie(WordArena)} indexes
+ * into the arena, not into a String array.
+ *
+ */
+public class WordArena implements WordSource {
+
+	/**
+	 * Characters of all words, one or two bytes per character
+	 */
+	private byte[] bytes;
+
+	/**
+	 * True if characters take two bytes (high byte first)
+	 */
+	private boolean wide;
+
+	/**
+	 * Start of each word in characters; offsets[size] is end of last word
+	 */
+	private int[] offsets;
+
+	/**
+	 * Number of words
+	 */
+	private int size;
+
+	/**
+	 * Initializes an empty arena.
+	 */
+	public WordArena() {
+		this(16, 128);
+	}
+
+	/**
+	 * Initializes an empty arena, sized for an expected number of words and characters.
+	 *
+	 * @param words Expected number of words
+	 * @param chars Expected number of characters in all words
+	 */
+	public WordArena(int words, int chars) {
+		bytes = new byte[Math.max(chars, 16)];
+		offsets = new int[Math.max(words, 16) + 1];
+		size = 0;
+	}
+
+	/**
+	 * Returns an arena holding the words in the input array, in the same order.
+	 *
+	 * @param allWords Input array of words
+	 * @return Arena with all words
+	 */
+	public static WordArena of(String[] allWords) {
+		long chars = 0;
+		for (String word : allWords) {
+			chars += word.length();
+		}
+		WordArena arena = new WordArena(allWords.length, (int)Math.min(chars, Integer.MAX_VALUE - 8));
+		for (String word : allWords) {
+			arena.add(word);
+		}
+		return arena;
+	}
+
+	/**
+	 * Adds a word at the end of the arena.
+	 *
+	 * @param word Word to add
+	 * @return Index of the word
+	 */
+	public int add(String word) {
+		int len = word.length();
+		if (!wide) {
+			for (int i=0; i < len; i++) {
+				if (word.charAt(i) > 0xff) {
+					widen();
+					break;
+				}
+			}
+		}
+		int start = offsets[size];
+		int pos = ensureCapacity(len);
+		if (wide) {
+			for (int i=0; i < len; i++) {
+				char c = word.charAt(i);
+				bytes[pos++] = (byte)(c >> 8);
+				bytes[pos++] = (byte)c;
+			}
+		} else {
+			for (int i=0; i < len; i++) {
+				bytes[pos++] = (byte)word.charAt(i);
+			}
+		}
+		offsets[size+1] = start + len;
+		return size++;
+	}
+
+	/**
+	 * Adds a word given as Latin-1 bytes, one byte per character, at the end of
+	 * the arena, without making a String.
+	 *
+	 * @param latin1 Array holding the word's characters
+	 * @param off Index of the first character in the array
+	 * @param len Number of characters
+	 * @return Index of the word
+	 */
+	public int add(byte[] latin1, int off, int len) {
+		int start = offsets[size];
+		int pos = ensureCapacity(len);
+		if (wide) {
+			for (int i=0; i < len; i++) {
+				bytes[pos++] = 0;
+				bytes[pos++] = latin1[off + i];
+			}
+		} else {
+			System.arraycopy(latin1, off, bytes, pos, len);
+		}
+		offsets[size+1] = start + len;
+		return size++;
+	}
+
+	/**
+	 * Makes room for one more word of len characters.
+	 *
+	 * @return Byte position at which to store the new word's characters
+	 */
+	private int ensureCapacity(int len) {
+		if (size + 1 == offsets.length) {
+			offsets = Arrays.copyOf(offsets, offsets.length * 2);
+		}
+		int start = offsets[size];
+		long needed = (long)(start + len) << (wide ? 1 : 0);
+		if (needed > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("word arena is full");
+		}
+		if (needed > bytes.length) {
+			bytes = Arrays.copyOf(bytes, (int)Math.min(Integer.MAX_VALUE - 8, Math.max(needed, bytes.length * 2L)));
+		}
+		return wide ? start << 1 : start;
+	}
+
+	/**
+	 * Switches the arena to two bytes per character.
+	 */
+	private void widen() {
+		int chars = offsets[size];
+		if ((long)chars * 2 > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("word arena is full");
+		}
+		byte[] wider = new byte[Math.max(chars * 2, 16)];
+		for (int i=0; i < chars; i++) {
+			wider[2*i+1] = bytes[i];
+		}
+		bytes = wider;
+		wide = true;
+	}
+
+	public char charAt(int wordIndex, int i) {
+		int pos = offsets[wordIndex] + i;
+		if (wide) {
+			return (char)((bytes[2*pos] << 8) | (bytes[2*pos+1] & 0xff));
+		}
+		return (char)(bytes[pos] & 0xff);
+	}
+
+	public int length(int wordIndex) {
+		return offsets[wordIndex+1] - offsets[wordIndex];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns a word in the arena as a String.
+	 *
+	 * @param wordIndex Index of word
+	 * @return The word
+	 */
+	public String get(int wordIndex) {
+		int start = offsets[wordIndex], len = offsets[wordIndex+1] - start;
+		if (wide) {
+			char[] chars = new char[len];
+			for (int i=0; i < len; i++) {
+				chars[i] = charAt(wordIndex, i);
+			}
+			return new String(chars);
+		}
+		return new String(bytes, start, len, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Returns all words in the arena as an array of Strings.
+	 *
+	 * @return Array of words, in arena order
+	 */
+	public String[] toArray() {
+		String[] words = new String[size];
+		for (int i=0; i < size; i++) {
+			words[i] = get(i);
+		}
+		return words;
+	}
+
+	/**
+	 * Releases unused capacity, once all words have been added.
+	 */
+	public void trim() {
+		bytes = Arrays.copyOf(bytes, offsets[size] << (wide ? 1 : 0));
+		offsets = Arrays.copyOf(offsets, size + 1);
+	}
+}
@@ -0,0 +1,171 @@
+package trie;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * This class loads word files (one word per line, UTF-8) into a WordArena.
+ *
+ * The file is read through a FileChannel in large blocks, and lines are found
+ * and normalized (trimmed, lower cased) on the bytes in the block. A line that
+ * is all ASCII, which is nearly every line of a typical word list, goes into the
+ * arena without ever becoming a String; other lines are decoded and lower cased
+ * with the root locale. Blank lines are skipped. No word count line is needed,
+ * so words can simply be appended to a file; when there is one, exactly that
+ * many lines after it are read, as TrieApp always has, and the rest ignored.
+ *
+ */
+public class WordLoader {
+
+	/**
+	 * Size of blocks read from the file
+	 */
+	private static final int BLOCK_SIZE = 1 << 20;
+
+	// prevent instantiation
+	private WordLoader() { }
+
+	/**
+	 * Loads all words in a file into a new arena.
+	 *
+	 * @param file Words file
+	 * @param countLine True if the first line holds the number of words (as in
+	 *        the files read by TrieApp): only that many lines after it are read
+	 * @return Arena with the file's words, in file order
+	 * @throws IOException If the file can't be read, or the count line doesn't
+	 *         hold a number
+	 */
+	public static WordArena load(File file, boolean countLine)
+	throws IOException {
+		long length = file.length();
+		// about 9 bytes per line in typical word lists
+		int words = (int)Math.min(Integer.MAX_VALUE - 8, Math.max(16, length / 9));
+		int chars = (int)Math.min(Integer.MAX_VALUE - 8, Math.max(16, length));
+		WordArena arena = new WordArena(words, chars);
+		load(file, countLine, arena);
+		arena.trim();
+		return arena;
+	}
+
+	/**
+	 * Loads all words in a file, adding them at the end of an arena.
+	 *
+	 * @param file Words file
+	 * @param countLine True if the first line holds the number of words: only
+	 *        that many lines after it are read
+	 * @param arena Arena to add the words to
+	 * @return Number of words added (fewer than the count if some lines were blank)
+	 * @throws IOException If the file can't be read, or the count line doesn't
+	 *         hold a number
+	 */
+	public static int load(File file, boolean countLine, WordArena arena)
+	throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			FileChannel channel = in.getChannel();
+			byte[] block = new byte[BLOCK_SIZE];
+			ByteBuffer buf = ByteBuffer.wrap(block);
+			int added = 0, kept = 0;
+			// lines still to be read after the count line, if any
+			long left = Long.MAX_VALUE;
+			boolean skip = countLine, eof = false;
+			while (!eof && left > 0) {
+				buf.position(kept);
+				buf.limit(block.length);
+				while (buf.hasRemaining()) {
+					if (channel.read(buf) < 0) {
+						eof = true;
+						break;
+					}
+				}
+				int filled = buf.position(), start = 0;
+				for (int i=0; i < filled && left > 0; i++) {
+					if (block[i] == '\n') {
+						if (skip) {
+							left = count(block, start, i);
+							skip = false;
+						} else {
+							if (addLine(block, start, i, arena)) {
+								added++;
+							}
+							left--;
+						}
+						start = i + 1;
+					}
+				}
+				if (eof || left == 0) {
+					// last line may have no newline
+					if (!skip && left > 0 && start < filled && addLine(block, start, filled, arena)) {
+						added++;
+					}
+					break;
+				}
+				// carry the partial last line over to the next block
+				kept = filled - start;
+				if (kept == block.length) {
+					block = Arrays.copyOf(block, block.length * 2);
+					buf = ByteBuffer.wrap(block);
+				} else {
+					System.arraycopy(block, start, block, 0, kept);
+				}
+			}
+			return added;
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Parses the count line in block[from..to-1].
+	 */
+	private static int count(byte[] block, int from, int to)
+	throws IOException {
+		String line = new String(block, from, to - from, StandardCharsets.US_ASCII).trim();
+		try {
+			return Integer.parseInt(line);
+		} catch (NumberFormatException e) {
+			throw new IOException("first line should be the number of words: " + line);
+		}
+	}
+
+	/**
+	 * Trims, lower cases and adds the line in block[from..to-1].
+	 *
+	 * @return True if the line was not blank, and was added
+	 */
+	private static boolean addLine(byte[] block, int from, int to, WordArena arena) {
+		// same whitespace as String.trim (the line break included)
+		while (from < to && (block[from] & 0xff) <= ' ') {
+			from++;
+		}
+		while (to > from && (block[to-1] & 0xff) <= ' ') {
+			to--;
+		}
+		if (from == to) {
+			return false;
+		}
+		boolean ascii = true;
+		for (int i=from; i < to; i++) {
+			byte b = block[i];
+			if (b < 0) {
+				ascii = false;
+				break;
+			}
+			if (b >= 'A' && b <= 'Z') {
+				block[i] = (byte)(b + ('a' - 'A'));
+			}
+		}
+		if (ascii) {
+			arena.add(block, from, to - from);
+		} else {
+			arena.add(new String(block, from, to - from, StandardCharsets.UTF_8).toLowerCase(Locale.ROOT));
+		}
+		return true;
+	}
+}
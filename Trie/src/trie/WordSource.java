@@ -0,0 +1,41 @@
+package trie;
+
+/**
+ * Characters of an indexed collection of words, as seen by the trie.
+ * The trie's Indexes point into a word source by word index.
+ *
+ */
+interface WordSource {
+
+	/**
+	 * Returns a character of a word.
+	 *
+	 * @param wordIndex Index of word in the collection
+	 * @param i Index of character in word
+	 * @return The character
+	 */
+	char charAt(int wordIndex, int i);
+
+	/**
+	 * Returns the length of a word.
+	 *
+	 * @param wordIndex Index of word in the collection
+	 * @return Number of characters in word
+	 */
+	int length(int wordIndex);
+
+	/**
+	 * Returns a word as a String.
+	 *
+	 * @param wordIndex Index of word in the collection
+	 * @return The word
+	 */
+	String get(int wordIndex);
+
+	/**
+	 * Returns number of words in the collection.
+	 *
+	 * @return Number of words
+	 */
+	int size();
+}